@@ -1,4 +1,8 @@
 import lib.Block;
+import lib.Hash256;
+
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * This interface define the APIs to implement a BlockChain layer to
@@ -22,7 +26,8 @@ public interface BlockChainBase {
     /**
      * Create a block based on the string data.
      * @param data the data contained in the block
-     * @return the byte representation of the block.
+     * @return the byte representation of the block <lib.BlockCodec>, or null if mining
+     * was preempted by another block becoming the new tip.
      */
     byte[] createNewBlock(String data);
 
@@ -32,6 +37,21 @@ public interface BlockChainBase {
      */
     boolean broadcastNewBlock();
 
+    /**
+     * broadcast the run of consecutive mined blocks waiting for broadcast,
+     * in one message per peer (block by block in gossip or compact relay mode);
+     * broadcastNewBlock still sends only the first queued block
+     * @return the number of blocks added into the chain, counted from the first.
+     */
+    int broadcastNewBlocks();
+
+    /**
+     * Add consecutive blocks all or nothing.
+     * @param blocks the blocks, each one following the one before it.
+     * @return one vote per block, the batch is added only if all are true.
+     */
+    boolean[] addBlocks(List<Block> blocks);
+
     /**
      * Set the difficulty of the proof-of-work
      * @param difficulty the difficulty
@@ -40,15 +60,30 @@ public interface BlockChainBase {
 
     /**
      * get the byte representation of the blockchain
-     * @return the byte representation
+     * @return the byte representation, a read-only view shared with the chain (not a copy)
      */
-    byte[] getBlockchainData();
+    ByteBuffer getBlockchainData();
 
     /**
      * Download the blockchain from its peer.
      */
     void downloadBlockchain();
 
+    /**
+     * Find the highest block of a peer's locator that is also on this chain.
+     * @param locator the encoded block locator (tip hash first, then exponentially spaced ancestors)
+     * @return the encoded common ancestor height and a summary of this chain's tip
+     */
+    byte[] locateCommonAncestor(byte[] locator);
+
+    /**
+     * One page of the chain, for downloading a long chain in pieces.
+     * @param height the first height of the page
+     * @param count the maximum number of blocks in the page
+     * @return the byte representation of the blocks, fewer if the chain ends first
+     */
+    byte[] getBlockchainDataRange(int height, int count);
+
     /**
      * Set the node for communication
      * @param node the node class.
@@ -63,6 +98,28 @@ public interface BlockChainBase {
      */
     boolean isValidNewBlock(Block newBlock, Block prevBlock);
 
+    /**
+     * Validate an announced block header against the latest block,
+     * everything isValidNewBlock checks except the hash of the content.
+     * @param header the header (a block without its data)
+     * @return whether the block's body is worth fetching
+     */
+    boolean isValidNextHeader(Block header);
+
+    /**
+     * Whether the chain holds a block.
+     * @param hash the block hash
+     * @return true if the block is in the chain
+     */
+    boolean hasBlock(Hash256 hash);
+
+    /**
+     * The byte representation of one block of the chain.
+     * @param hash the block hash
+     * @return the encoded block, null if the chain does not hold it
+     */
+    byte[] getBlockData(Hash256 hash);
+
     /**
      * Get the latest block added into the chain
      * @return the latest block.
@@ -153,6 +153,155 @@ public class BlockchainTest {
         System.out.println("####### Test done ##########");
     }
 
+    private static void TestAsyncMine() throws Exception {
+
+        int numServers = 3;
+
+        Config cfg = new Config( numServers, controllerPort );
+
+        /* Waiting for all raft peers to start and register with Transport Layer controller. */
+        cfg.waitUntilAllRegister();
+
+        Thread.sleep( BROADCAST_TIME );
+
+        System.out.println( "Testing asynchronous mining request ...\\n" );
+
+        /* Queue a mining request on node 0, the call should return at once. */
+        String s = "Node0 async mine";
+        int ticket = cfg.submitMiningRequestToNode(0, s.getBytes());
+
+        boolean pass = true;
+
+        if(ticket < 0) {
+            pass = false;
+            System.out.println( "Error : Mining request rejected by an empty queue. \n" );
+        }
+
+        /* Poll until the background miner is done. */
+        while(!cfg.isMiningDone(0, ticket)) {
+            Thread.sleep( 10 );
+        }
+
+        Block b = cfg.getMinedBlock(0, ticket);
+
+        if(b == null || !b.getHash().startsWith("00000")) {
+            pass = false;
+            System.out.println( "Error : No valid block from the mining ticket. \n" );
+        }
+
+        cfg.broadcastNewBlock(0);
+
+        Thread.sleep( BROADCAST_TIME );
+
+        for(int i = 0; i < numServers; i++) {
+            GetStateReply rep = cfg.getState(i);
+
+            if(rep.length != 2) {
+                pass = false;
+                System.out.println( "Error : Broadcast error! Node " + i +
+                        " length should be 2. \n" );
+            }
+        }
+
+        if(pass)
+            System.out.println( "  ... Passed\n" );
+
+        cfg.cleanup();
+
+        System.out.println("####### Test done ##########");
+    }
+
+    private static void TestBatchBroadcast() throws Exception {
+
+        int numServers = 3;
+
+        Config cfg = new Config( numServers, controllerPort );
+
+        /* Waiting for all raft peers to start and register with Transport Layer controller. */
+        cfg.waitUntilAllRegister();
+
+        Thread.sleep( BROADCAST_TIME );
+
+        System.out.println( "Testing batched broadcast of queued blocks ...\\n" );
+
+        /* Node 0 mines several blocks before broadcasting, they should chain up in its queue. */
+        int cnt = 3;
+        for(int k = 0; k < cnt; k ++) {
+            String s = "Node0 queued mine " + k;
+            cfg.sendMiningRequestToNode(0, s.getBytes());
+        }
+
+        /* One batch broadcast sends the whole run. */
+        cfg.broadcastNewBlocks(0);
+
+        Thread.sleep( BROADCAST_TIME );
+
+        boolean pass = true;
+
+        for(int i = 0; i < numServers; i++) {
+            GetStateReply rep = cfg.getState(i);
+
+            if(rep.length != cnt + 1) {
+                pass = false;
+                System.out.println( "Error : Batch broadcast error! Node " + i +
+                        " length should be " + (cnt + 1) + ". \n" );
+            }
+        }
+
+        if(pass)
+            System.out.println( "  ... Passed\n" );
+
+        cfg.cleanup();
+
+        System.out.println("####### Test done ##########");
+    }
+
+    private static void TestDelimiterData() throws Exception {
+
+        int numServers = 3;
+
+        Config cfg = new Config( numServers, controllerPort );
+
+        /* Waiting for all raft peers to start and register with Transport Layer controller. */
+        cfg.waitUntilAllRegister();
+
+        Thread.sleep( BROADCAST_TIME );
+
+        System.out.println( "Testing block data with separator characters ...\\n" );
+
+        /* The data contains the characters of the old block string format. */
+        String s = "Node0 mine a,b;c";
+        Block b = cfg.sendMiningRequestToNode(0, s.getBytes());
+
+        boolean pass = true;
+
+        if(b == null || !s.equals(b.getData())) {
+            pass = false;
+            System.out.println( "Error : Mined block data should be \"" + s + "\". \n" );
+        }
+
+        cfg.broadcastNewBlock(0);
+
+        Thread.sleep( BROADCAST_TIME );
+
+        for(int i = 0; i < numServers; i++) {
+            GetStateReply rep = cfg.getState(i);
+
+            if(rep.length != 2 || b == null || !b.getHash().equals(rep.lastHash)) {
+                pass = false;
+                System.out.println( "Error : Broadcast error! Node " + i +
+                        " length should be 2 with the mined block on top. \n" );
+            }
+        }
+
+        if(pass)
+            System.out.println( "  ... Passed\n" );
+
+        cfg.cleanup();
+
+        System.out.println("####### Test done ##########");
+    }
+
     private static void TestConsensus() throws Exception {
 
         int numServers = 4;
@@ -342,6 +491,18 @@ public class BlockchainTest {
                     TestBasicMultiMining();
                     break;
 
+                case "Async-Mining":
+                    TestAsyncMine();
+                    break;
+
+                case "Batch-Broadcast":
+                    TestBatchBroadcast();
+                    break;
+
+                case "Delimiter-Data":
+                    TestDelimiterData();
+                    break;
+
                 case "Consensus":
                     TestConsensus();
                     break;
@@ -0,0 +1,70 @@
+import lib.Block;
+import lib.Hash256;
+
+import java.util.List;
+
+/**
+ * This interface define the storage of one chain of blocks,
+ * looked up by height (index) and by hash in constant time.
+ * The store does no validation, the chain manager validates before appending.
+ */
+public interface ChainStore {
+
+    /**
+     * Number of blocks, genesis included.
+     * @return the chain length
+     */
+    int size();
+
+    /**
+     * Get the block at a height.
+     * @param height the block index, 0 is genesis
+     * @return the block, or null if the height is out of range
+     */
+    Block get(int height);
+
+    /**
+     * Get a block by its hash.
+     * @param hash the block hash key
+     * @return the block, or null if it is not on this chain
+     */
+    Block getByHash(Hash256 hash);
+
+    /**
+     * Height of a block by its hash.
+     * @param hash the block hash key
+     * @return the height, or -1 if it is not on this chain
+     */
+    int heightOf(Hash256 hash);
+
+    /**
+     * Whether a block is already on this chain.
+     * @param hash the block hash key
+     * @return known or not
+     */
+    boolean contains(Hash256 hash);
+
+    /**
+     * Get the last block.
+     * @return the tip, or null if the store is empty
+     */
+    Block getTip();
+
+    /**
+     * Append a block on top of the tip.
+     * @param block the (already validated) block
+     */
+    void append(Block block);
+
+    /**
+     * Drop the blocks at height >= size (e.g. before switching to a peer's fork).
+     * @param size the new chain length
+     */
+    void truncate(int size);
+
+    /**
+     * Read-only view of the blocks, indexed by height.
+     * @return the list view
+     */
+    List<Block> asList();
+}
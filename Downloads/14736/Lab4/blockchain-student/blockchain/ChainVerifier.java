@@ -0,0 +1,151 @@
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lib.Block;
+import lib.Hash256;
+import lib.HashEngine;
+
+/**
+ * Parallel Full Verification of a Downloaded Chain
+ * The Heights to Check are Split in Chunks over a Fork-Join Pool; every Block is Checked on its own
+ * against its Parent (Index, Linkage, Retarget Difficulty, Leading Zero Bits, Recomputed SHA-256),
+ * none of which Depends on another Block having been Verified first.
+ * The Lowest Bad Height Found so far is Shared, Chunks above it are Skipped or Abandoned.
+ * Blocks Found in the VerifiedBlockCache Skip the SHA-256, Newly Verified Ones are Added to it.
+ */
+public class ChainVerifier {
+
+    /* Verification Threads, -Dblockchain.verify.threads=N */
+    public static final int DEFAULT_THREADS =
+            Integer.getInteger("blockchain.verify.threads", Runtime.getRuntime().availableProcessors());
+
+    /* Blocks per Chunk, a Chunk is Verified Sequentially by One Thread, -Dblockchain.verify.chunk=N */
+    public static final int DEFAULT_CHUNK = Integer.getInteger("blockchain.verify.chunk", 2048);
+
+    private final HashEngine hashEngine;
+
+    private final VerifiedBlockCache cache;
+
+    private final int chunk;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor
+     * @param hashEngine the SHA-256 backend the block hashes are recomputed with
+     * @param cache blocks already verified, shared with the other validation paths
+     * @param threads number of verification threads
+     * @param chunk blocks per sequential chunk
+     */
+    public ChainVerifier(HashEngine hashEngine, VerifiedBlockCache cache, int threads, int chunk) {
+        this.hashEngine = hashEngine;
+        this.cache = cache;
+        this.chunk = Math.max(1, chunk);
+        /* Fork-Join Worker Threads are Daemons, the Pool never Keeps a Node Alive */
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+    }
+
+    /**
+     * Verify the Blocks of a Chain from a Height up to its End
+     * Blocks below 'from' are Trusted (this Node's Own), but are Read as Parents and for the Retarget Rule
+     * @param chain blocks indexed by height, must allow fast random access
+     * @param from lowest height to verify, at least 1 (the genesis block carries no proof of work)
+     * @param retarget the difficulty rule of the chain
+     * @return the lowest bad height, or -1 if every block is valid
+     */
+    public int verify(List<Block> chain, int from, DifficultyRetarget retarget) {
+        from = Math.max(1, from);
+        if (from >= chain.size()) {
+            return -1;
+        }
+        AtomicInteger first_Bad = new AtomicInteger(Integer.MAX_VALUE);
+        /* Short Ranges are not Worth a Hand-off to the Pool */
+        if (chain.size() - from <= this.chunk) {
+            new Range(chain, from, chain.size(), retarget, first_Bad).compute();
+        }
+        else {
+            this.pool.invoke(new Range(chain, from, chain.size(), retarget, first_Bad));
+        }
+        return first_Bad.get() == Integer.MAX_VALUE ? -1 : first_Bad.get();
+    }
+
+    /**
+     * Check One Block against its Parent
+     */
+    public boolean isValid(List<Block> chain, int height, DifficultyRetarget retarget) {
+        Block block = chain.get(height);
+        Block prev = chain.get(height - 1);
+        if (block.getIndex() != height || !prev.getHashKey().equals(block.getPreviousHashKey())) {
+            return false;
+        }
+        int expected_difficulty = retarget.nextDifficulty(chain, height - 1);
+        if (block.getDifficulty() != expected_difficulty || block.getHashKey().leadingZeroBits() < expected_difficulty) {
+            return false;
+        }
+        return hasValidHash(block);
+    }
+
+    /**
+     * Whether a Block's Hash is the SHA-256 of its Content, Looked up in the Cache first
+     */
+    public boolean hasValidHash(Block block) {
+        if (this.cache.isVerified(block)) {
+            return true;
+        }
+        if (!block.getHashKey().equals(Hash256.fromBytes(this.hashEngine.sha256(block.contentString().getBytes(StandardCharsets.UTF_8))))) {
+            return false;
+        }
+        this.cache.add(block);
+        return true;
+    }
+
+    /**
+     * Heights [lo, hi): Split in Halves down to One Chunk, which is Checked in Order
+     */
+    private class Range extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Block> chain;
+
+        private final int lo, hi;
+
+        private final DifficultyRetarget retarget;
+
+        private final AtomicInteger first_Bad;
+
+        Range(List<Block> chain, int lo, int hi, DifficultyRetarget retarget, AtomicInteger first_Bad) {
+            this.chain = chain;
+            this.lo = lo;
+            this.hi = hi;
+            this.retarget = retarget;
+            this.first_Bad = first_Bad;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.lo >= this.first_Bad.get()) {
+                return;
+            }
+            if (this.hi - this.lo > chunk) {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new Range(this.chain, this.lo, mid, this.retarget, this.first_Bad),
+                        new Range(this.chain, mid, this.hi, this.retarget, this.first_Bad));
+                return;
+            }
+            for (int height = this.lo; height < this.hi && height < this.first_Bad.get(); height++) {
+                if (!isValid(this.chain, height, this.retarget)) {
+                    /* Keep the Lowest: a Higher Chunk may have Failed first */
+                    int cur = this.first_Bad.get();
+                    while (height < cur && !this.first_Bad.compareAndSet(cur, height)) {
+                        cur = this.first_Bad.get();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,18 @@
 import lib.Block;
+import lib.BlockCodec;
+import lib.ChainReader;
+import lib.HashEngine;
+import lib.Hash256;
+import lib.HashEngines;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.rmi.RemoteException;
 import java.util.*;
-
-import org.apache.commons.codec.digest.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Concrete Class Implementing the BlockChainBase Interface
@@ -12,6 +20,25 @@ import org.apache.commons.codec.digest.*;
 public class ConcreteBlockChain implements BlockChainBase{
     private static final int RANDOM_BYTES_SIZE = 32;
 
+    /* Blocks per Page of a Paged Chain Download, -Dblockchain.sync.pageSize=N */
+    private static final int SYNC_PAGE_SIZE = Math.max(1, Integer.getInteger("blockchain.sync.pageSize", 1024));
+
+    /* Page Requests Kept in Flight while a Page is Decoded and Verified, -Dblockchain.sync.window=N */
+    private static final int SYNC_WINDOW = Math.max(1, Integer.getInteger("blockchain.sync.window", 4));
+
+    /* Most Queued Blocks Sent in One Batch, -Dblockchain.broadcast.maxBatch=N */
+    private static final int MAX_BATCH = Math.max(1, Integer.getInteger("blockchain.broadcast.maxBatch", 64));
+
+    /* How Long a Broadcast Waits for the Votes, -Dblockchain.broadcast.timeoutMillis=MS */
+    private static final long BROADCAST_TIMEOUT_MILLIS = Long.getLong("blockchain.broadcast.timeoutMillis", 10000L);
+
+    /* Agree Votes a Broadcast Needs: 'all' (Default), 'majority' or a Number, -Dblockchain.broadcast.quorum=Q */
+    private static final String BROADCAST_QUORUM = System.getProperty("blockchain.broadcast.quorum", "all");
+
+    /* Whether a Preempted Mining Round Restarts on the new Tip, or Reports the Preemption (Returns null),
+       -Dblockchain.miner.restartOnPreempt=true */
+    private static final boolean RESTART_ON_PREEMPTION = Boolean.getBoolean("blockchain.miner.restartOnPreempt");
+
     private int NodeID;
 
     /* Need to Pass the Node instance into Concrete Block Chain Object
@@ -19,17 +46,49 @@ public class ConcreteBlockChain implements BlockChainBase{
      */
     private Node Node;
 
-    private int difficulty; // Difficulty for 'Proof-of-Work'
-    private String pof_Hash_prefix; // Hash Prefix for Proof-of-work (Difficulty Number of Zeros)
+    private int difficulty; // Base Difficulty for 'Proof-of-Work' (Leading Zero Bits of the Hash)
+    private DifficultyRetarget retarget; // Difficulty of every Later Block, Derived from the Chain
 
     private Random randomGenerator; // random number generator
 
-    /* Queue for Minded Block */
+    /* SHA-256 Backend Picked by the Node at Startup */
+    private HashEngine hashEngine;
+
+    /* Multi-Threaded Nonce Search Engine */
+    private ParallelMiner miner;
+
+    /* Parallel Proof-of-Work Check of Downloaded Chains */
+    private ChainVerifier verifier;
+
+    /* Blocks whose Hash was already Recomputed, Broadcast Blocks Show up again in Downloads */
+    private VerifiedBlockCache verified_Blocks;
+
+    /* Preemption Signals of the Running Mining Rounds, each with the Queued Blocks it Builds on,
+       Raised Once the Chain Tip Moves Elsewhere
+       <Several Rounds can Run at once with a Multi-Threaded MiningService>
+     */
+    private final Map<AtomicBoolean, Set<Hash256>> mining_Preempted = new HashMap<AtomicBoolean, Set<Hash256>>();
+
+    /* Orphaned Work Statistics <Reported in the Preemption Log> */
+    private final AtomicLong preempted_Rounds = new AtomicLong();
+    private final AtomicLong orphaned_Hashes = new AtomicLong();
+
+    /* Queue for Minded Block <Fed by the MiningService Threads, Drained by broadcastNewBlock> */
 //    private Block minded_Block;
     private Queue<Block> Minded_Block_Queue;
 
-    /* The real List of Blocks */
-    private List<Block> block_chains;
+    /* Last Block of this Node whose Broadcast was Credited: while it is the Tip it can still Lose to a Sibling,
+       and the Coin goes back <Guarded by this> */
+    private Hash256 credited_Tip;
+
+    /* Parallel Tip Queries and Chain Fetches of downloadBlockchain */
+    private final ExecutorService sync_Pool;
+
+    /* One Announcement per Peer at once in broadcastNewBlock */
+    private final ExecutorService broadcast_Pool;
+
+    /* The real Chain of Blocks <Indexed by Height and by Hash, with its Encoded Form Kept up to Date> */
+    private SerializedChainStore block_chains;
 
     /**
      * Constructor
@@ -37,20 +96,45 @@ public class ConcreteBlockChain implements BlockChainBase{
      * @return
      */
     public ConcreteBlockChain(int NodeID, Node node){
+        this(NodeID, node, HashEngines.byName(HashEngines.DEFAULT));
+    }
+
+    /**
+     * Constructor
+     * @param NodeID Need to Pass in the NodeID to the constructor
+     * @param hashEngine SHA-256 backend for mining and validation
+     */
+    public ConcreteBlockChain(int NodeID, Node node, HashEngine hashEngine){
         this.NodeID = NodeID;
         this.Node = node;
+        this.hashEngine = hashEngine;
 
         // Difficulty Level Default to 20
 //        this.difficulty = 4; // Just For Now
-//        generateHashPrefix();
         this.randomGenerator = new Random();
 
-        this.Minded_Block_Queue = new LinkedList<Block>();
+        this.miner = new ParallelMiner(this.NodeID, ParallelMiner.DEFAULT_WORKERS, this.hashEngine);
+        this.verified_Blocks = new VerifiedBlockCache(VerifiedBlockCache.DEFAULT_CAPACITY);
+        this.verifier = new ChainVerifier(this.hashEngine, this.verified_Blocks,
+                ChainVerifier.DEFAULT_THREADS, ChainVerifier.DEFAULT_CHUNK);
+
+        this.Minded_Block_Queue = new ConcurrentLinkedQueue<Block>();
+
+        this.sync_Pool = newDaemonPool("sync");
+        this.broadcast_Pool = newDaemonPool("broadcast");
 
-        this.block_chains = new ArrayList<Block>();
-        /* Add Genesis Block to the Chain Upon the Start of the Node*/
-        System.out.println("Node"+this.NodeID+" Added the first Genesis Block, Node Launched!");
-        this.block_chains.add(createGenesisBlock());
+        /* In Memory, or Restored from the Node's Block Log if -Dblockchain.data.dir is Set */
+        long restore_start = System.currentTimeMillis();
+        this.block_chains = new SerializedChainStore(PersistentChainStore.open(this.NodeID));
+        if(this.block_chains.size() > 0){
+            System.out.println("Node"+this.NodeID+" Restored "+this.block_chains.size()+" Blocks from its Block Log in "
+                    +(System.currentTimeMillis()-restore_start)+" ms, Node Launched!");
+        }
+        else{
+            /* Add Genesis Block to the Chain Upon the Start of the Node*/
+            System.out.println("Node"+this.NodeID+" Added the first Genesis Block, Node Launched!");
+            this.block_chains.append(createGenesisBlock());
+        }
 
     }
 
@@ -60,13 +144,34 @@ public class ConcreteBlockChain implements BlockChainBase{
      * @return
      */
     @Override
-    public boolean addBlock(Block block) {
+    public synchronized boolean addBlock(Block block) {
         /* Need Validation of the Block First */
         Block cur_lastBlock = getLastBlock();
 
+        /* A Competing Block for the Tip: the Fork Choice of downloadBlockchain, the Earlier Block Wins, then the Lower Hash,
+           so every Node that Sees both Keeps the Same one <Blocks Mined at once and Spread over Several Hops
+           (Gossip) would Split the Nodes for good otherwise> */
+        if(isWinningSibling(block, cur_lastBlock)){
+            Block parent = this.block_chains.get(cur_lastBlock.getIndex() - 1);
+            if(!isValidNewBlock(block, parent)){
+                return false;
+            }
+            System.out.println("In Node"+this.NodeID+", Replace Block ["+cur_lastBlock.getIndex()+"] by the Earlier ["+block.toString()+"]");
+            this.block_chains.truncate(cur_lastBlock.getIndex());
+            this.block_chains.append(block);
+            if(cur_lastBlock.getHashKey().equals(this.credited_Tip)){
+                this.credited_Tip = null;
+                this.Node.revokeCoin(cur_lastBlock);
+            }
+            preemptMining(block);
+            return true;
+        }
+
         if(isValidNewBlock(block, cur_lastBlock)){
             System.out.println("In Node"+this.NodeID+", Add new Block: ["+block.toString()+"]");
-            this.block_chains.add(block);
+            this.block_chains.append(block);
+            /* The Tip Moved, Any Running Mining Round not Building on it is Now Working on a Stale Parent */
+            preemptMining(block);
             return true;
         }
 
@@ -90,6 +195,7 @@ public class ConcreteBlockChain implements BlockChainBase{
 //        String random_PrevHash = generateRandomString();
 //        String data = generateRandomString();
 
+        /* Not Hex, Keyed by their own SHA-256 <lib.Hash256.of>, the Same on every Node */
         String genesis_Hash = "GENESIS_BLOCK";
         String random_PrevHash = "GENESIS_PREVIOUS_HASH";
         String data = "GENESIS_RANDOM_DATA";
@@ -114,44 +220,90 @@ public class ConcreteBlockChain implements BlockChainBase{
             (prev_hash + timestamp + data + difficulty + Nonce)and the hash of the previous block.
 
             The proof-of-work needs to calculate a hash with a prefix containing number of difficulty 0s.
+            <Counted in Bits, the Difficulty of each Block comes from the DifficultyRetarget Rule>
             Here we simply add a nonce into our block to achieve our goal.
             Brute-force enumerate all possible nonce until mine the hash that meet the requirement.
-            use SHA256 to calculate hash <commons.codec.digest.DigestUtils.sha256Hex()>
+            use SHA256 to calculate hash <lib.NonceHasher from the Node's HashEngine>
+            The Nonce Space is Searched by all the ParallelMiner Workers at once.
+
+            If another Block is Accepted while Mining, the Round is Preempted:
+            Restart on the new Tip, or Return null to Report the Preemption.
          */
 
-        int index = getLastBlock().getIndex() + 1;
-
-        long nonce = Long.MIN_VALUE;
-        /* Index + PreviousHash + data + timestamp + difficulty */
-        String BlockInfo = Block.SEPARATOR+index+Block.SEPARATOR+getLastBlock().getHash()+Block.SEPARATOR
-                +data+Block.SEPARATOR+System.currentTimeMillis()+Block.SEPARATOR+this.difficulty+Block.SEPARATOR;
-
-        String curHash = "";
-        /* Enumerate Over all Possible Long Nonce Value */
-        while(nonce < Long.MAX_VALUE){
-            byte[] curData = (BlockInfo + nonce).getBytes();
-            /* Calculates the SHA-256 digest and returns the value as a hex string */
-            curHash = DigestUtils.sha256Hex(curData);
-            if(curHash.startsWith(this.pof_Hash_prefix)){
-                System.out.println("In Node"+this.NodeID+", new Block Mined: "+curHash);
-                break;
+        String BlockInfo;
+        ParallelMiner.Result result;
+        Block lastBlock;
+        int block_difficulty;
+        long time_stamp;
+        while(true){
+            /* Take the Tip and Arm the Preemption Signal Atomically w.r.t. addBlock */
+            AtomicBoolean preempted = new AtomicBoolean(false);
+            synchronized (this){
+                /* Continue the Mined Blocks still Queued for Broadcast, so a Burst Forms One Contiguous Batch */
+                List<Block> run = pendingRun(getLastBlock());
+                List<Block> chain = extendedBy(this.block_chains.asList(), run);
+                lastBlock = chain.get(chain.size()-1);
+                block_difficulty = this.retarget.nextDifficulty(chain, chain.size()-1);
+                /* Those Blocks Becoming the Tip do not Preempt this Round, it Builds on them */
+                Set<Hash256> ancestors = new HashSet<Hash256>();
+                for(Block queued : run){
+                    ancestors.add(queued.getHashKey());
+                }
+                this.mining_Preempted.put(preempted, ancestors);
             }
-            else{
-//                System.out.println("In Node"+this.NodeID+", Invalid hash: "+curHash);
-                nonce ++;
+
+            int index = lastBlock.getIndex() + 1;
+            time_stamp = System.currentTimeMillis();
+
+            /* Index + PreviousHash + data + timestamp + difficulty <Only Hashed, never Parsed back> */
+            BlockInfo = Block.SEPARATOR+index+Block.SEPARATOR+lastBlock.getHash()+Block.SEPARATOR
+                    +data+Block.SEPARATOR+time_stamp+Block.SEPARATOR+block_difficulty+Block.SEPARATOR;
+
+            /* Enumerate Over Long Nonce Values, every Miner Worker under its own Extra-Nonce */
+            result = this.miner.mine(BlockInfo, block_difficulty, preempted);
+
+            synchronized (this){
+                this.mining_Preempted.remove(preempted);
             }
+
+            /* A Block Found after the Tip Moved is Stale as well */
+            if(preempted.get()){
+                long rounds = this.preempted_Rounds.incrementAndGet();
+                long orphaned = this.orphaned_Hashes.addAndGet(result.hashes);
+                System.out.println("In Node"+this.NodeID+", Mining on Block ["+lastBlock.getIndex()+"] Preempted by a new Tip, "
+                        +result.hashes+" Hashes Orphaned ("+orphaned+" in "+rounds+" Rounds so far)");
+                if(RESTART_ON_PREEMPTION){
+                    continue;
+                }
+                return null;
+            }
+
+            if(!result.found){
+                System.err.println("In Node"+this.NodeID+", Nonce Space Exhausted Without a Valid Hash");
+                return null;
+            }
+            break;
         }
 
-        /* The Complete Block String Representation */
-        String Block_str = curHash+BlockInfo+nonce;
+        String curHash = result.hash;
+        long nonce = result.nonce;
+        System.out.println("In Node"+this.NodeID+", new Block Mined: "+curHash);
 
-        Block new_block = Block.fromString(Block_str);
+        /* Built from its Fields, with the Winning Worker's Extra-Nonce
+           <The Data may Contain ',' or ';', the Block is never Parsed from its String Form> */
+        Block new_block = new Block(Hash256.of(curHash), lastBlock.getHashKey(), data, time_stamp);
+        new_block.setIndex(lastBlock.getIndex() + 1);
+        new_block.setDifficulty(block_difficulty);
+        new_block.setExtraNonce(result.extraNonce);
+        new_block.setNonce(nonce);
+        /* Hashed by the Miner already, no Need to Hash it again when it is Added */
+        this.verified_Blocks.add(new_block);
 
         /* add the newly Mined Block to the Queue */
 //        this.minded_Block = new_block;
         this.Minded_Block_Queue.offer(new_block);
 
-        return  Block_str.getBytes();
+        return  BlockCodec.encodeBlock(new_block);
     }
 
     /**
@@ -162,35 +314,329 @@ public class ConcreteBlockChain implements BlockChainBase{
      */
     @Override
     public boolean broadcastNewBlock() {
+        /* Remove the Head of Minded Blocks Queue */
+        Block minded_Block = this.Minded_Block_Queue.poll();
+        if(minded_Block == null){
+            System.err.println("No Valid Mined Block");
+            return false;
+        }
+        return broadcastBlock(minded_Block) && bookCredit(Collections.singletonList(minded_Block), 1) == 1;
+    }
+
+    /**
+     * Broadcast the Contiguous Run of Blocks at the Head of the Minded Blocks Queue in One Message per Node
+     * A Run of One Block Goes the Usual Way <broadcastNewBlock>, and so does each Block of a Run
+     * in Gossip or Compact Relay Mode, which Carry One Block per Message
+     * @return the number of blocks accepted, counted from the first
+     */
+    @Override
+    public int broadcastNewBlocks() {
+        List<Block> batch = new ArrayList<Block>();
+        synchronized (this.Minded_Block_Queue){
+            Block head = this.Minded_Block_Queue.poll();
+            if(head == null){
+                System.err.println("No Valid Mined Block");
+                return 0;
+            }
+            batch.add(head);
+            Block next = this.Minded_Block_Queue.peek();
+            while(next != null && batch.size() < MAX_BATCH
+                    && next.getPreviousHashKey().equals(batch.get(batch.size()-1).getHashKey())){
+                batch.add(this.Minded_Block_Queue.poll());
+                next = this.Minded_Block_Queue.peek();
+            }
+        }
+        if(batch.size() == 1 || this.Node.isGossipEnabled() || this.Node.isCompactRelay()){
+            /* Each Block Builds on the One before, the Rest of the Run is Dropped once One is Rejected */
+            int accepted = 0;
+            while(accepted < batch.size() && broadcastBlock(batch.get(accepted))){
+                accepted++;
+            }
+            return bookCredit(batch, accepted);
+        }
+        System.out.println("Node"+this.NodeID+" Starts to BroadCast "+batch.size()+" Mined Blocks: "
+                +batch.get(0).getIndex()+" to "+batch.get(batch.size()-1).getIndex());
 
+        /* Every Node at once, each Answers One Vote per Block */
         int peer_num = this.Node.getPeerNumber();
+        final byte[] encoded_Batch = BlockCodec.encodeBatch(batch);
+        CompletionService<boolean[]> votes = new ExecutorCompletionService<boolean[]>(this.broadcast_Pool);
+        for(int i=0; i<peer_num; i++){
+            final int peer = i;
+            votes.submit(new Callable<boolean[]>() {
+                @Override
+                public boolean[] call() throws RemoteException {
+                    return Node.broadcastNewBlocksToPeer(peer, encoded_Batch);
+                }
+            });
+        }
 
-        if(Minded_Block_Queue.peek() == null){
-            System.err.println("No Valid Mined Block");
+        int quorum = quorumSize(peer_num);
+        int[] agreed = new int[batch.size()];
+        int answered = 0;
+        long start = System.currentTimeMillis();
+        long deadline = start + BROADCAST_TIMEOUT_MILLIS;
+        while(answered < peer_num){
+            Future<boolean[]> vote = null;
+            try {
+                vote = votes.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            /* Nodes not Answering in Time Abstain, like for a Single Block */
+            if(vote == null){
+                System.out.println("Node"+this.NodeID+" Got "+answered+"/"+peer_num+" Votes on "+batch.size()
+                        +" Mined Blocks within "+BROADCAST_TIMEOUT_MILLIS+" ms, the Others Timed out");
+                break;
+            }
+            answered++;
+            boolean[] ballot = awaitSync(vote);
+            for(int k=0; k<agreed.length; k++){
+                if(ballot == null || (k < ballot.length && ballot[k])){
+                    agreed[k]++;
+                }
+            }
         }
-        /* Remove the Head of Minded Blocks Queue */
-        Block minded_Block = this.Minded_Block_Queue.poll();
+
+        /* Blocks Build on each Other: Accepted up to the First one Short of the Quorum */
+        int accepted = 0;
+        while(accepted < agreed.length && agreed[accepted] >= quorum){
+            accepted++;
+        }
+        System.out.println("Node"+this.NodeID+" Broadcast of "+batch.size()+" Mined Blocks: "+accepted+" Accepted by "
+                +quorum+"/"+peer_num+" Agree Votes in "+(System.currentTimeMillis() - start)+" ms");
+        return bookCredit(batch, accepted);
+    }
+
+    /**
+     * Credit the Accepted Blocks of a Broadcast that are still on the Chain
+     * <A Sibling may have Replaced the Last one while the Votes were Counted>
+     * @param blocks the broadcast blocks, each one following the one before it
+     * @param accepted the number of blocks the quorum accepted, counted from the first
+     * @return the number of blocks credited, counted from the first
+     */
+    private synchronized int bookCredit(List<Block> blocks, int accepted){
+        int credited = 0;
+        while(credited < accepted && this.block_chains.contains(blocks.get(credited).getHashKey())){
+            credited++;
+        }
+        if(credited < accepted){
+            System.out.println("In Node"+this.NodeID+", Mined Block ["+blocks.get(credited).getIndex()
+                    +"] was Replaced before its Broadcast Completed, no Coin");
+        }
+        if(credited > 0){
+            this.credited_Tip = blocks.get(credited - 1).getHashKey();
+        }
+        return credited;
+    }
+
+    /**
+     * Apply a Batch of Blocks All or Nothing: each Block must Pass addBlock after the Ones before it,
+     * otherwise the Chain is Rolled back to where it was
+     * @return one vote per block, true for the blocks that passed
+     */
+    @Override
+    public synchronized boolean[] addBlocks(List<Block> blocks) {
+        boolean[] votes = new boolean[blocks.size()];
+        int size = this.block_chains.size();
+        Block prev = getLastBlock();
+        for(int k=0; k<votes.length; k++){
+            votes[k] = isValidNewBlock(blocks.get(k), prev);
+            if(!votes[k]){
+                System.out.println("In Node"+this.NodeID+", Batch of "+votes.length+" Blocks Rejected at Block ["+blocks.get(k).getIndex()+"]");
+                this.block_chains.truncate(size);
+                return votes;
+            }
+            this.block_chains.append(blocks.get(k));
+            prev = blocks.get(k);
+        }
+        System.out.println("In Node"+this.NodeID+", Add "+votes.length+" new Blocks: ["+blocks.get(0).getIndex()+"] to ["+prev.getIndex()+"]");
+        preemptMining(prev);
+        return votes;
+    }
+
+    /**
+     * The Queued Mined Blocks that Continue a Tip, in Chain Order
+     */
+    private List<Block> pendingRun(Block tip){
+        List<Block> run = new ArrayList<Block>();
+        Block last = tip;
+        for(Block queued : this.Minded_Block_Queue){
+            if(queued.getPreviousHashKey().equals(last.getHashKey())){
+                run.add(queued);
+                last = queued;
+            }
+        }
+        return run;
+    }
+
+    /**
+     * The Chain Followed by a Run of Blocks Continuing its Tip
+     */
+    private List<Block> extendedBy(final List<Block> chain, final List<Block> run){
+        if(run.isEmpty()){
+            return chain;
+        }
+        final int size = chain.size();
+        return new AbstractList<Block>() {
+            @Override
+            public Block get(int height) {
+                return height < size ? chain.get(height) : run.get(height - size);
+            }
+
+            @Override
+            public int size() {
+                return size + run.size();
+            }
+        };
+    }
+
+    /**
+     * Broadcast One Mined Block to all Nodes
+     */
+    private boolean broadcastBlock(final Block minded_Block) {
+        int peer_num = this.Node.getPeerNumber();
+
         /* Broadcast to all Nodes (Clients) <Including this Node itself>*/
         System.out.println("Node"+this.NodeID+" Starts to BroadCast Mined Block: "+minded_Block.getIndex());
 
+        if(this.Node.isGossipEnabled()){
+            return gossipBlock(minded_Block, peer_num);
+        }
+
 
+        /* Sent to every Node at once, the Votes are Counted as they Arrive <One Round Trip, not peer_num> */
+        final byte[] encoded_Block = BlockCodec.encodeBlock(minded_Block);
+        CompletionService<Boolean> votes = new ExecutorCompletionService<Boolean>(this.broadcast_Pool);
+        final Map<Future<Boolean>, Integer> voters = new HashMap<Future<Boolean>, Integer>();
         for(int i=0; i<peer_num; i++){
-            try {
-                if (this.Node.broadcastNewBlockToPeer(i, minded_Block.toString().getBytes())) {
-                    System.out.println("Node"+i+" Accept Mined Block ["+minded_Block.getIndex()+ "] From Node"+this.NodeID);
-                }
-                else{
-                    System.out.println("Node"+i+" Rejected Mined Block ["+minded_Block.getIndex()+ "] From Node"+this.NodeID);
-                    return false;
+            final int peer = i;
+            voters.put(votes.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws RemoteException {
+                    return Node.broadcastNewBlockToPeer(peer, encoded_Block);
                 }
+            }), peer);
+        }
+
+        /* Decided as soon as the Quorum Agreed, or Enough Nodes Rejected that it never can */
+        int quorum = quorumSize(peer_num);
+        int agreed = 0;
+        int rejected = 0;
+        int answered = 0;
+        long start = System.currentTimeMillis();
+        long deadline = start + BROADCAST_TIMEOUT_MILLIS;
+        while(answered < peer_num && agreed < quorum && rejected <= peer_num - quorum){
+            Future<Boolean> vote = null;
+            try {
+                vote = votes.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
             }
-            catch (RemoteException re){
-                re.printStackTrace();
-                System.exit(-1);
+            /* Nodes not Answering in Time Abstain <Unlike a Disconnected Node, whose null Reply Counts as Agree> */
+            if(vote == null){
+                System.out.println("Node"+this.NodeID+" Got "+answered+"/"+peer_num+" Votes on Mined Block ["
+                        +minded_Block.getIndex()+"] within "+BROADCAST_TIMEOUT_MILLIS+" ms, the Others Timed out");
+                break;
+            }
+            answered++;
+            int i = voters.get(vote);
+            if (awaitSync(vote)) {
+                agreed++;
+                System.out.println("Node"+i+" Accept Mined Block ["+minded_Block.getIndex()+ "] From Node"+this.NodeID);
+            }
+            else{
+                rejected++;
+                System.out.println("Node"+i+" Rejected Mined Block ["+minded_Block.getIndex()+ "] From Node"+this.NodeID);
             }
         }
+        boolean accepted = agreed >= quorum;
+        System.out.println("Node"+this.NodeID+" Broadcast of Mined Block ["+minded_Block.getIndex()+"] "
+                +(accepted ? "Accepted" : "Rejected")+" by "+agreed+"/"+quorum+" Agree Votes in "
+                +(System.currentTimeMillis() - start)+" ms");
 
-        return true;
+        /* The Rest Still Apply or Reject the Block, their Votes are Logged in the Background */
+        if(answered < peer_num && System.currentTimeMillis() < deadline){
+            collectLateVotes(votes, voters, peer_num - answered, minded_Block.getIndex(), deadline);
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Gossip Mode: this Node Adds the Block and Relays it, the Merged Reach Tables of the Relays
+     * are the Votes, Counted against the Same Quorum of all peer_num Nodes
+     */
+    private boolean gossipBlock(Block minded_Block, int peer_num){
+        long start = System.currentTimeMillis();
+        byte[] reached = this.Node.gossipNewBlock(BlockCodec.encodeBlock(minded_Block));
+        int quorum = quorumSize(peer_num);
+        int agreed = reached == null ? 0 : GossipRelay.agreeVotes(reached);
+        boolean accepted = agreed >= quorum;
+        System.out.println("Node"+this.NodeID+" Gossip of Mined Block ["+minded_Block.getIndex()+"] "
+                +(accepted ? "Accepted" : "Rejected")+" by "+agreed+"/"+quorum+" Agree Votes in "
+                +(System.currentTimeMillis() - start)+" ms");
+        return accepted;
+    }
+
+    /**
+     * Agree Votes Needed out of peer_num <BROADCAST_QUORUM>
+     */
+    private int quorumSize(int peer_num){
+        if(BROADCAST_QUORUM.equalsIgnoreCase("all")){
+            return peer_num;
+        }
+        if(BROADCAST_QUORUM.equalsIgnoreCase("majority")){
+            return peer_num / 2 + 1;
+        }
+        try {
+            return Math.max(1, Math.min(peer_num, Integer.parseInt(BROADCAST_QUORUM.trim())));
+        } catch (NumberFormatException nfe) {
+            System.err.println("Error: Unknown Broadcast Quorum '"+BROADCAST_QUORUM+"', Expected all, majority or a Number");
+            System.exit(-1);
+        }
+        return peer_num;
+    }
+
+    /**
+     * Log the Votes Arriving after a Broadcast was Decided, without Holding up the Miner
+     */
+    private void collectLateVotes(final CompletionService<Boolean> votes, final Map<Future<Boolean>, Integer> voters,
+                                  final int pending, final int index, final long deadline){
+        this.broadcast_Pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                for(int k=0; k<pending; k++){
+                    Future<Boolean> vote = null;
+                    try {
+                        vote = votes.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    if(vote == null){
+                        System.out.println("Node"+NodeID+" Got no Late Vote on Mined Block ["+index+"] from "+(pending - k)+" Nodes");
+                        return;
+                    }
+                    System.out.println("Node"+voters.get(vote)+(awaitSync(vote) ? " Accept" : " Rejected")
+                            +" Mined Block ["+index+"] From Node"+NodeID+" <Late Vote>");
+                }
+            }
+        });
+    }
+
+    /**
+     * Cached Pool of Daemon Threads Named after this Node, so they never Keep a Node Alive
+     */
+    private ExecutorService newDaemonPool(final String name){
+        final AtomicInteger threads = new AtomicInteger();
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Node" + NodeID + "-" + name + "-" + threads.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
     }
 
 
@@ -203,27 +649,19 @@ public class ConcreteBlockChain implements BlockChainBase{
         this.difficulty = difficulty;
 //        System.out.println("Node"+this.NodeID+" 's Difficulty Level Changed to "+this.difficulty);
 
-        /* Update Hash Prefix based on Difficulty value */
-        generateHashPrefix();
+        /* Base of the Retargeting Rule, Later Blocks Follow the Observed Block Intervals */
+        this.retarget = new DifficultyRetarget(DifficultyRetarget.DEFAULT_WINDOW,
+                DifficultyRetarget.DEFAULT_TARGET_INTERVAL, difficulty);
     }
 
     /**
-     * Generate String Representation of Current Block Chain
+     * Generate Binary Representation of Current Block Chain <lib.BlockCodec>
+     * Maintained Incrementally by the Chain Store, a Read-Only View of its Buffer rather than a Copy
      * @return
      */
     @Override
-    public byte[] getBlockchainData() {
-        StringBuilder builder = new StringBuilder(this.block_chains.get(0).toString()); // Append the Genesis Block First
-
-        for(int i=1; i<getBlockChainLength(); i++){
-            builder.append(Block.BLOCK_SEPARATOR);
-            builder.append(this.block_chains.get(i).toString());
-        }
-
-        String ret_str = builder.toString();
-        byte[] ret = ret_str.getBytes();
-
-        return ret;
+    public ByteBuffer getBlockchainData() {
+        return this.block_chains.payload();
     }
 
     /**
@@ -233,52 +671,85 @@ public class ConcreteBlockChain implements BlockChainBase{
     @Override
     public void downloadBlockchain() {
         /* Calling 'getBlockChainDataFromPeer' method by using the Node Instance */
-        List<Block> candidate_Block_chain = new ArrayList<Block>();
+        DownloadedChain candidate_Block_chain = null;
 
         /* Download BlockChains from others
            Choose the one with the longest length
+           <All Peers are Asked for their Tip in Parallel, then only the Best Peer's Chain is Fetched;
+            Delta Sync: only the Blocks after the Common Ancestor are Transferred>
          */
         int num_peers = Node.getPeerNumber();
+        final byte[] locator = BlockCodec.encodeLocator(getBlockLocator());
 
+        CompletionService<TipSummary> tip_Queries = new ExecutorCompletionService<TipSummary>(this.sync_Pool);
+        int queried = 0;
         for(int i=0; i<num_peers; i++){
             if(i != this.NodeID){
-                try {
-                    byte[] downloaded = this.Node.getBlockChainDataFromPeer(i);
-                    List<Block> cur_bc = parseBlockChain(downloaded);
-                    /* Shorter Chain, Ignore */
-                    if(cur_bc.size() < candidate_Block_chain.size()){
-                        continue;
-                    }
-                    /* Longer Chain, Accept */
-                    else if(cur_bc.size() > candidate_Block_chain.size()){
-                        System.out.println("Node"+this.NodeID+" Switch to apply Chains From Node"+i);
-                        candidate_Block_chain = cur_bc;
-                    }
-                    /* For blockchains with the same length
-                       Choose the one containing
-                       the earliest timestamp in the last block.
-                     */
-                    else{
-                        long cur_chain_last_block_tstmp = cur_bc.get(cur_bc.size()-1).getTimestamp();
-                        if(cur_chain_last_block_tstmp < candidate_Block_chain.get(getBlockChainLength()-1).getTimestamp()){
-                            System.out.println("Node"+this.NodeID+" Switch to apply Chains From Node"+i);
-                            candidate_Block_chain = cur_bc;
-                        }
+                final int peer = i;
+                tip_Queries.submit(new Callable<TipSummary>() {
+                    @Override
+                    public TipSummary call() throws RemoteException {
+                        return queryTip(peer, locator);
                     }
+                });
+                queried++;
+            }
+        }
+
+        /* Tips in Arrival Order; a Better Tip Cancels the Fetch Running for the Previous Best */
+        List<TipSummary> tips = new ArrayList<TipSummary>();
+        TipSummary best = null;
+        Future<DownloadedChain> best_Fetch = null;
+        for(int k=0; k<queried; k++){
+            TipSummary tip = awaitSync(tip_Queries);
+            if(tip == null){
+                continue;
+            }
+            tips.add(tip);
+            if(tip.isBetterThan(best)){
+                System.out.println("Node"+this.NodeID+" Switch to apply Chains From Node"+tip.peer);
+                best = tip;
+                if(best_Fetch != null){
+                    best_Fetch.cancel(true);
+                }
+                best_Fetch = fetchChainAsync(tip);
+            }
+        }
+
+        if(best != null){
+            candidate_Block_chain = awaitSync(best_Fetch);
+        }
+        /* The Best Peer's Chain Turned out Broken: Next Best Tip, One by One */
+        if(candidate_Block_chain == null && tips.size() > 1){
+            Collections.sort(tips, new Comparator<TipSummary>() {
+                @Override
+                public int compare(TipSummary a, TipSummary b) {
+                    return a.isBetterThan(b) ? -1 : (b.isBetterThan(a) ? 1 : 0);
                 }
-                catch (RemoteException re){
-                    re.printStackTrace();
-                    System.exit(-1);
+            });
+            for(TipSummary tip : tips.subList(1, tips.size())){
+                System.out.println("Node"+this.NodeID+" Switch to apply Chains From Node"+tip.peer);
+                candidate_Block_chain = awaitSync(fetchChainAsync(tip));
+                if(candidate_Block_chain != null){
+                    break;
                 }
             }
         }
 
-        if(candidate_Block_chain.size() == 0){
+        if(candidate_Block_chain == null){
             System.err.println("Error: Node"+this.NodeID+" Failed to Download BloackChain From Peers");
             System.exit(-1);
         }
 
-        this.block_chains = candidate_Block_chain;
+        /* Keep the Shared Prefix, Replace only the Diverging Part <Rewrites Least of a Durable Store> */
+        synchronized (this){
+            /* addBlock only Appends, the Shared Prefix is still in Place */
+            this.block_chains.truncate(candidate_Block_chain.shared);
+            for(Block block : candidate_Block_chain.suffix){
+                this.block_chains.append(block);
+            }
+            preemptMining(getLastBlock());
+        }
     }
 
     @Override
@@ -295,6 +766,61 @@ public class ConcreteBlockChain implements BlockChainBase{
      */
     @Override
     public boolean isValidNewBlock(Block newBlock, Block prevBlock) {
+        if(!isValidHeader(newBlock, prevBlock)){
+            return false;
+        }
+        /* 5. Hash must be the SHA-256 of the Block's own Fields <Including the Miner's Extra-Nonce>
+              Skipped for a Block Verified before <VerifiedBlockCache> */
+        if(!this.verifier.hasValidHash(newBlock)){
+            System.out.println("In Node"+this.NodeID+" new Block's Hash"+newBlock.getHash()+" does not Match its Content ["+newBlock.contentString()+"]");
+            return false;
+        }
+
+        return true; // Pass all Examination Afterwards
+    }
+
+    /**
+     * Header of an Announced Block, Checked before its Body is Fetched <Compact Relay>
+     */
+    @Override
+    public synchronized boolean isValidNextHeader(Block header) {
+        Block tip = getLastBlock();
+        if(isWinningSibling(header, tip)){
+            return isValidHeader(header, this.block_chains.get(tip.getIndex() - 1));
+        }
+        return isValidHeader(header, tip);
+    }
+
+    /**
+     * Whether a Block Competes with the Tip <Same Parent> and Wins: Earlier Timestamp, then Lower Hash
+     */
+    private boolean isWinningSibling(Block block, Block tip){
+        if(tip.getIndex() == 0 || block.getIndex() != tip.getIndex()
+                || !block.getPreviousHashKey().equals(tip.getPreviousHashKey())
+                || block.getHashKey().equals(tip.getHashKey())){
+            return false;
+        }
+        if(block.getTimestamp() != tip.getTimestamp()){
+            return block.getTimestamp() < tip.getTimestamp();
+        }
+        return block.getHash().compareTo(tip.getHash()) < 0;
+    }
+
+    @Override
+    public boolean hasBlock(Hash256 hash) {
+        return this.block_chains.contains(hash);
+    }
+
+    @Override
+    public byte[] getBlockData(Hash256 hash) {
+        Block block = this.block_chains.getByHash(hash);
+        return block == null ? null : BlockCodec.encodeBlock(block);
+    }
+
+    /**
+     * Everything but the Content Hash: Index, Linkage, Difficulty and Proof of Work of the Claimed Hash
+     */
+    private boolean isValidHeader(Block newBlock, Block prevBlock) {
         /* 1. Index */
         int prev_index = prevBlock.getIndex();
         if (newBlock.getIndex() != prev_index + 1){
@@ -302,24 +828,28 @@ public class ConcreteBlockChain implements BlockChainBase{
             return false;
         }
         /* 2. Previous Hash Value */
-        String prev_hash = prevBlock.getHash();
-        if(!prev_hash.equals(newBlock.getPreviousHash())){
+        if(!prevBlock.getHashKey().equals(newBlock.getPreviousHashKey())){
             System.out.println("In Node"+this.NodeID+" new Block's Previous hash"+newBlock.getPreviousHash()+" Incompatible with current Last Block's Hash"+prevBlock.getHash());
             return false;
         }
-        /* 3. Hash Correction < Hash_Prefix Proof of Work Verification>*/
-        String cur_hash = newBlock.getHash();
-        if(!cur_hash.startsWith(this.pof_Hash_prefix)){
-            System.out.println("In Node"+this.NodeID+" new Block's Hash"+newBlock.getHash()+" Incompatible with current Difficulty Hash Prefix"+this.pof_Hash_prefix);
+        /* 3. Difficulty must Follow the Retargeting Rule of the Chain Ending at prevBlock */
+        int expected_difficulty = expectedDifficulty(prevBlock);
+        if(newBlock.getDifficulty() != expected_difficulty){
+            System.out.println("In Node"+this.NodeID+" new Block's Difficulty "+newBlock.getDifficulty()+" Incompatible with Expected Difficulty "+expected_difficulty);
             return false;
         }
-
-        return true; // Pass all Examination Afterwards
+        /* 4. Hash Correction < Leading Zero Bits Proof of Work Verification>*/
+        Hash256 cur_hash = newBlock.getHashKey();
+        if(cur_hash.leadingZeroBits() < expected_difficulty){
+            System.out.println("In Node"+this.NodeID+" new Block's Hash"+newBlock.getHash()+" Incompatible with current Difficulty "+expected_difficulty+" Bits");
+            return false;
+        }
+        return true;
     }
 
     @Override
     public Block getLastBlock() {
-        Block lastBlock = this.block_chains.get(this.block_chains.size()-1);
+        Block lastBlock = this.block_chains.getTip();
         if(lastBlock == null){
             System.out.println("Node"+this.NodeID+" contains Empty Block Chains");
         }
@@ -339,6 +869,22 @@ public class ConcreteBlockChain implements BlockChainBase{
      * Helper Functions
      */
 
+    /**
+     * Stop the Running Mining Rounds (if any) the new Tip is not an Ancestor of, Called whenever the Chain Tip Changes
+     * <A Round Mining on this Node's own Queued Run Keeps Going when a Block of that Run is Added>
+     * @param tip the new last block of the chain
+     */
+    private synchronized void preemptMining(Block tip){
+        Iterator<Map.Entry<AtomicBoolean, Set<Hash256>>> rounds = this.mining_Preempted.entrySet().iterator();
+        while(rounds.hasNext()){
+            Map.Entry<AtomicBoolean, Set<Hash256>> round = rounds.next();
+            if(!round.getValue().contains(tip.getHashKey())){
+                round.getKey().set(true);
+                rounds.remove();
+            }
+        }
+    }
+
     /**
      * Generate Random String By Random Bytes
      * @return
@@ -352,37 +898,360 @@ public class ConcreteBlockChain implements BlockChainBase{
     }
 
     /**
-     *  get Hash Prefix Based on the value of Difficulty
+     * Difficulty Required for the Block after prevBlock
+     * prevBlock is Looked up in this Node's Chain by its Hash
+     */
+    public int expectedDifficulty(Block prevBlock){
+        ChainStore chain = this.block_chains;
+        int prevPos = chain.heightOf(prevBlock.getHashKey());
+        if(prevPos < 0){
+            System.out.println("In Node"+this.NodeID+" Block ["+prevBlock.getIndex()+"] is not on the current Chain, Retargeting from the Tip");
+            prevPos = chain.size()-1;
+        }
+        return this.retarget.nextDifficulty(chain.asList(), prevPos);
+    }
+
+    /**
+     * A Peer's Chain as Seen by downloadBlockchain:
+     * Only the Part after the Prefix Shared with this Node's Chain is Kept
+     */
+    private static class DownloadedChain {
+        int length;
+        int shared; // Leading Blocks Equal to this Node's Own
+        long last_Timestamp;
+        List<Block> suffix = new ArrayList<Block>();
+        Block last; // Last Block Read, the Next One must Link to it
+        boolean in_Prefix = true; // Still Reading Blocks Equal to this Node's Own
+    }
+
+    /**
+     * Block Locator of this Node's Chain: the Last 10 Block Hashes, then Exponentially
+     * Spaced Ancestors, always Ending with the Genesis Block <O(log n) Hashes>
+     */
+    public synchronized List<Hash256> getBlockLocator(){
+        List<Hash256> locator = new ArrayList<Hash256>();
+        int step = 1;
+        for(int height = this.block_chains.size()-1; height > 0; height -= step){
+            locator.add(this.block_chains.get(height).getHashKey());
+            if(locator.size() >= 10){
+                step *= 2;
+            }
+        }
+        locator.add(this.block_chains.get(0).getHashKey());
+        return locator;
+    }
+
+    /**
+     * Answer a Peer's Block Locator with the First of its Hashes on this Chain
      */
-    public void generateHashPrefix(){
-        StringBuilder sb = new StringBuilder();
-        for(int i=0; i<this.difficulty/4; i++){
-            sb.append('0');
+    @Override
+    public synchronized byte[] locateCommonAncestor(byte[] locator) {
+        int ancestor = -1;
+        for(Hash256 hash : BlockCodec.decodeLocator(locator)){
+            ancestor = this.block_chains.heightOf(hash);
+            if(ancestor >= 0){
+                break;
+            }
         }
+        return BlockCodec.encodeAncestor(ancestor, this.block_chains.size(), getLastBlock().getTimestamp());
+    }
 
-        this.pof_Hash_prefix = sb.toString();
-//        System.out.println("Current Hash Prefix for PROOF OF WORK is "+this.pof_Hash_prefix);
+    /**
+     * One Page of Blocks, Copied out of the Maintained Encoded Chain
+     */
+    @Override
+    public byte[] getBlockchainDataRange(int height, int count) {
+        return this.block_chains.rangePayload(height, count);
     }
 
     /**
-     * Parse BlockChain Sting Bytes to BlockChain List
+     * A Peer's Tip as Reported by its Answer to our Block Locator
      */
-    public List<Block> parseBlockChain(byte[] block_chain_bytes){
-        List<Block> ret = new ArrayList<Block>();
+    private static class TipSummary {
+        int peer;
+        int ancestor; // Height of the Common Ancestor, -1 if Unknown (Whole Chain Needed)
+        int length;
+        long tip_Timestamp;
+        DownloadedChain chain; // Already Downloaded (Peers without Delta Sync)
 
-        String bc = new String(block_chain_bytes, Charset.defaultCharset());
-//        System.out.println("Downloaded Block String: "+bc);
-        String[] blocks = bc.split(Block.BLOCK_SEPARATOR);
+        /* Longer Chain, then Earlier Last Block, then Lower Peer ID so every Run Picks the Same */
+        boolean isBetterThan(TipSummary other){
+            if(other == null || this.length != other.length){
+                return other == null || this.length > other.length;
+            }
+            if(this.tip_Timestamp != other.tip_Timestamp){
+                return this.tip_Timestamp < other.tip_Timestamp;
+            }
+            return this.peer < other.peer;
+        }
+    }
 
-        if(blocks == null){
-            System.err.println("Invalid Block Chain String Representation: "+bc);
+    /**
+     * Ask One Peer for its Tip; Peers without Delta Sync are Downloaded in Full right here
+     * @return the tip summary, or null if the peer's chain is broken
+     */
+    private TipSummary queryTip(int peer, byte[] locator) throws RemoteException {
+        TipSummary ret = new TipSummary();
+        ret.peer = peer;
+        byte[] ancestor_reply = this.Node.getCommonAncestorFromPeer(peer, locator);
+        if(ancestor_reply != null){
+            long[] ancestor = BlockCodec.decodeAncestor(ancestor_reply);
+            ret.ancestor = (int) ancestor[0];
+            ret.length = (int) ancestor[1];
+            ret.tip_Timestamp = ancestor[2];
+            if(ret.ancestor >= 0){
+                return ret;
+            }
+        }
+        ret.ancestor = -1;
+        ret.chain = readPeerChain(peer, this.Node.getBlockChainDataFromPeer(peer));
+        if(ret.chain == null){
+            return null;
+        }
+        ret.length = ret.chain.length;
+        ret.tip_Timestamp = ret.chain.last_Timestamp;
+        return ret;
+    }
+
+    /**
+     * Fetch a Peer's Chain in the Background: only the Suffix after the Common Ancestor,
+     * or the Whole Chain if the Peer's Chain Changed since it Answered our Locator
+     */
+    private Future<DownloadedChain> fetchChainAsync(final TipSummary tip){
+        return this.sync_Pool.submit(new Callable<DownloadedChain>() {
+            @Override
+            public DownloadedChain call() throws RemoteException {
+                if(tip.chain != null){
+                    return tip.chain;
+                }
+                DownloadedChain ret = fetchPages(tip.peer, tip.ancestor + 1, tip.length);
+                if(ret != null){
+                    return ret;
+                }
+                if(Thread.currentThread().isInterrupted()){
+                    return null;
+                }
+                return readPeerChain(tip.peer, Node.getBlockChainDataFromPeer(tip.peer));
+            }
+        });
+    }
+
+    /**
+     * Wait for a Sync Task; a Failed RMI Call is Fatal, as in the Sequential Download
+     */
+    private <T> T awaitSync(Future<T> task){
+        try {
+            return task.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            ee.getCause().printStackTrace();
             System.exit(-1);
         }
+        return null;
+    }
+
+    private <T> T awaitSync(CompletionService<T> tasks){
+        try {
+            return awaitSync(tasks.take());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
 
-        for(String block : blocks){
-            ret.add(Block.fromString(block));
+    /**
+     * Paged Download of a Peer's Blocks [from, to) <GET_BLOCK_RANGE>
+     * SYNC_WINDOW Page Requests are Kept in Flight, so Decoding and Verifying One Page Overlaps
+     * with Fetching the Next; no Message ever Carries more than SYNC_PAGE_SIZE Blocks.
+     * @return the chain, or null if a page is missing, broken or invalid (the peer's chain may have changed)
+     */
+    private DownloadedChain fetchPages(final int peer, int from, int to) throws RemoteException {
+        DownloadedChain ret = startChain(from);
+        if(ret == null){
+            return null;
         }
+        Deque<Future<byte[]>> pages = new ArrayDeque<Future<byte[]>>();
+        int next_page = from;
+        int page_count = 0;
+        long start = System.currentTimeMillis();
+        try {
+            while(next_page < to || !pages.isEmpty()){
+                /* Keep the Window Full, the Next Pages Travel while this One is Checked */
+                while(next_page < to && pages.size() < SYNC_WINDOW){
+                    final int page_from = next_page;
+                    final int page_size = Math.min(SYNC_PAGE_SIZE, to - next_page);
+                    pages.add(this.sync_Pool.submit(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() throws RemoteException {
+                            return Node.getBlockRangeFromPeer(peer, page_from, page_size);
+                        }
+                    }));
+                    next_page += page_size;
+                }
+                byte[] page = awaitSync(pages.poll());
+                if(page == null){
+                    return null;
+                }
+                int page_start = ret.length;
+                ChainReader reader;
+                try {
+                    reader = new ChainReader(page);
+                } catch (RuntimeException re){
+                    System.out.println("Node"+this.NodeID+" Cannot Decode the Chain From Node"+peer+": "+re);
+                    return null;
+                }
+                if(reader.startHeight() != page_start || !appendPeerBlocks(peer, ret, reader)
+                        || !verifyDownloadedChain(peer, ret, page_start)){
+                    return null;
+                }
+                page_count++;
+            }
+        } finally {
+            /* Cancelled or Failed: Drop the Pages still in Flight */
+            for(Future<byte[]> pending : pages){
+                pending.cancel(true);
+            }
+        }
+        /* A Short Page: the Peer's Chain Shrank since it Reported its Tip */
+        if(ret.length != to){
+            return null;
+        }
+        System.out.println("Node"+this.NodeID+" Synced "+(to - from)+" Blocks after Block ["+(from - 1)+"] From Node"+peer
+                +" in "+page_count+" Pages, "+(System.currentTimeMillis() - start)+" ms, Verified-Block Cache: "+this.verified_Blocks);
+        return ret;
+    }
 
+    /**
+     * Read a Whole Peer Chain Payload Block by Block <lib.ChainReader>
+     * Blocks Equal to this Node's Own are Counted, not Kept; the Linkage is Checked as the Blocks Arrive
+     * @return the chain, or null if broken
+     */
+    private DownloadedChain readPeerChain(int peer, byte[] payload){
+        if(payload == null){
+            System.out.println("Node"+this.NodeID+" Got an Empty Chain From Node"+peer);
+            return null;
+        }
+        ChainReader reader;
+        try {
+            reader = new ChainReader(payload);
+        } catch (RuntimeException re){
+            System.out.println("Node"+this.NodeID+" Cannot Decode the Chain From Node"+peer+": "+re);
+            return null;
+        }
+        DownloadedChain ret = startChain(reader.startHeight());
+        if(ret == null || !appendPeerBlocks(peer, ret, reader) || ret.length == 0){
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        if(!verifyDownloadedChain(peer, ret, 0)){
+            return null;
+        }
+        if(ret.suffix.size() > 0){
+            System.out.println("Node"+this.NodeID+" Verified "+ret.suffix.size()+" Blocks From Node"+peer
+                    +" in "+(System.currentTimeMillis() - start)+" ms, Verified-Block Cache: "+this.verified_Blocks);
+        }
         return ret;
     }
+
+    /**
+     * An Empty Download Continuing from this Node's Own Block below a Height
+     * @return the chain, or null if this node has no block below that height
+     */
+    private DownloadedChain startChain(int start){
+        DownloadedChain ret = new DownloadedChain();
+        if(start > 0){
+            ret.last = this.block_chains.get(start - 1);
+            if(ret.last == null){
+                return null;
+            }
+            ret.shared = start;
+            ret.length = start;
+            ret.last_Timestamp = ret.last.getTimestamp();
+        }
+        return ret;
+    }
+
+    /**
+     * Append the Blocks of a Payload to a Download, Checking Index and Linkage as they Arrive
+     * @return false if the blocks do not continue the download, cannot be decoded, or the fetch was cancelled
+     */
+    private boolean appendPeerBlocks(int peer, DownloadedChain ret, ChainReader reader){
+        try {
+            while(reader.hasNext()){
+                /* Fetch Cancelled, a Better Tip Showed up */
+                if(Thread.currentThread().isInterrupted()){
+                    return false;
+                }
+                Block block = reader.next();
+                int height = ret.length;
+                if(block.getIndex() != height || (ret.last != null && !ret.last.getHashKey().equals(block.getPreviousHashKey()))){
+                    System.out.println("Node"+this.NodeID+" Got a Broken Chain From Node"+peer+" at Block ["+height+"]");
+                    return false;
+                }
+                if(ret.in_Prefix && isOwnBlock(block, height)){
+                    ret.shared = height + 1;
+                }
+                else{
+                    ret.in_Prefix = false;
+                    ret.suffix.add(block);
+                }
+                ret.length++;
+                ret.last_Timestamp = block.getTimestamp();
+                ret.last = block;
+            }
+        }
+        catch (RuntimeException re){
+            System.out.println("Node"+this.NodeID+" Cannot Decode the Chain From Node"+peer+": "+re);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Full Proof-of-Work Verification of the Blocks a Peer Chain does not Share with this Node <ChainVerifier>
+     * The Shared Prefix was Verified when it was Added here
+     * @param from lowest height to check, blocks below it were checked with an earlier page
+     * @return whether every new block from that height is valid
+     */
+    private boolean verifyDownloadedChain(int peer, final DownloadedChain chain, int from){
+        final int shared = chain.shared;
+        final List<Block> suffix = chain.suffix;
+        /* A Different Genesis Block <Not Mined> must still Carry the Hard-Coded Genesis Hash */
+        if(shared == 0 && from == 0 && !suffix.get(0).getHashKey().equals(this.block_chains.get(0).getHashKey())){
+            System.out.println("Node"+this.NodeID+" Got an Invalid Block [0] From Node"+peer);
+            return false;
+        }
+        final int length = chain.length;
+        List<Block> view = new AbstractList<Block>() {
+            @Override
+            public Block get(int height) {
+                return height < shared ? block_chains.get(height) : suffix.get(height - shared);
+            }
+
+            @Override
+            public int size() {
+                return length;
+            }
+        };
+        int bad_height = this.verifier.verify(view, Math.max(from, shared), this.retarget);
+        if(bad_height >= 0){
+            System.out.println("Node"+this.NodeID+" Got an Invalid Block ["+bad_height+"] From Node"+peer+", Chain Rejected");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether this Node's Chain Holds the Same Block at a Height
+     */
+    private boolean isOwnBlock(Block block, int height){
+        /* Genesis Blocks Share the Hash but not the Timestamp */
+        if(height == 0){
+            Block genesis = this.block_chains.get(0);
+            return genesis != null && genesis.getHashKey().equals(block.getHashKey())
+                    && genesis.getTimestamp() == block.getTimestamp();
+        }
+        return this.block_chains.heightOf(block.getHashKey()) == height;
+    }
 }
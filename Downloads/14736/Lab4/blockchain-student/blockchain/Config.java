@@ -1,4 +1,5 @@
 import lib.Block;
+import lib.BlockCodec;
 import lib.Controller;
 import lib.GetStateReply;
 
@@ -121,13 +122,37 @@ public class Config extends UnicastRemoteObject implements Remote {
 
     public Block sendMiningRequestToNode(int nodeID, byte[] data) {
         byte[] retData = transportLayerCtrl.mineNewBlock(nodeID, data);
-        return Block.fromString(new String(retData));
+        /* Mining was Preempted by a Competing Block */
+        if(retData == null){
+            return null;
+        }
+        return BlockCodec.decodeBlock(retData);
+    }
+
+    public int submitMiningRequestToNode(int nodeID, byte[] data) {
+        return transportLayerCtrl.submitMiningRequest(nodeID, data);
+    }
+
+    public boolean isMiningDone(int nodeID, int ticket) {
+        return transportLayerCtrl.isMiningDone(nodeID, ticket);
+    }
+
+    public Block getMinedBlock(int nodeID, int ticket) {
+        byte[] retData = transportLayerCtrl.getMinedBlock(nodeID, ticket);
+        if(retData == null){
+            return null;
+        }
+        return BlockCodec.decodeBlock(retData);
     }
 
     public void broadcastNewBlock(int nodeID) {
         transportLayerCtrl.broadcastNewBlock(nodeID);
     }
 
+    public void broadcastNewBlocks(int nodeID) {
+        transportLayerCtrl.broadcastNewBlocks(nodeID);
+    }
+
     public void downloadChain(int nodeID) {
         transportLayerCtrl.downloadChain(nodeID);
     }
@@ -0,0 +1,86 @@
+import lib.Block;
+
+import java.util.List;
+
+/**
+ * Deterministic Difficulty Retargeting
+ * Difficulty is Counted in Leading Zero Bits of the Hash (One Bit Doubles the Expected Work).
+ * Every 'window' Blocks, the Timestamps of the Last 'window' Blocks are Compared with the
+ * Target Interval and the Difficulty Moves by whole Bits toward it (at most MAX_STEP Bits).
+ * Every Node must Run with the same Window and Target, the Rule only Reads the Chain.
+ */
+public class DifficultyRetarget {
+
+    /* Blocks per Retarget Epoch, -Dblockchain.retarget.window=N */
+    public static final int DEFAULT_WINDOW = Integer.getInteger("blockchain.retarget.window", 16);
+
+    /* Target Milliseconds between Blocks, -Dblockchain.retarget.interval=MS */
+    public static final long DEFAULT_TARGET_INTERVAL = Long.getLong("blockchain.retarget.interval", 10000L);
+
+    /* Largest Change of One Retarget, in Bits (2 Bits = 4x Work) */
+    public static final int MAX_STEP = 2;
+
+    public static final int MIN_DIFFICULTY = 1;
+
+    public static final int MAX_DIFFICULTY = 255;
+
+    private final int window;
+
+    private final long targetInterval;
+
+    private final int baseDifficulty;
+
+    /**
+     * Constructor
+     * @param window blocks per retarget epoch (at least 2)
+     * @param targetInterval target milliseconds between blocks
+     * @param baseDifficulty difficulty of the first block after genesis
+     */
+    public DifficultyRetarget(int window, long targetInterval, int baseDifficulty) {
+        this.window = Math.max(2, window);
+        this.targetInterval = Math.max(1, targetInterval);
+        this.baseDifficulty = baseDifficulty;
+    }
+
+    public int getBaseDifficulty() {
+        return baseDifficulty;
+    }
+
+    /**
+     * Difficulty the Block after chain.get(prevPos) must Carry
+     * @param chain blocks indexed by height
+     * @param prevPos height of the parent of the new block
+     * @return required leading zero bits of the new block
+     */
+    public int nextDifficulty(List<Block> chain, int prevPos) {
+        Block prev = chain.get(prevPos);
+        /* Genesis Difficulty is not Meaningful (Created before the Difficulty is Set) */
+        if (prevPos == 0) {
+            return this.baseDifficulty;
+        }
+
+        int nextIndex = prevPos + 1;
+        /* Only at Epoch Boundaries, and Never Reading the Genesis Timestamp (Different on every Node) */
+        if (nextIndex <= this.window || (nextIndex - 1) % this.window != 0) {
+            return prev.getDifficulty();
+        }
+
+        long actual = Math.max(1, prev.getTimestamp() - chain.get(nextIndex - this.window).getTimestamp());
+        long expected = (this.window - 1) * this.targetInterval;
+
+        /* Integer Halving/Doubling, no Floating Point, so every Node Gets the same Answer */
+        int delta = 0;
+        long span = actual;
+        while (delta < MAX_STEP && span * 2 <= expected) {
+            span *= 2;
+            delta++;
+        }
+        while (delta > -MAX_STEP && span >= expected * 2) {
+            span /= 2;
+            delta--;
+        }
+
+        int next = prev.getDifficulty() + delta;
+        return Math.max(MIN_DIFFICULTY, Math.min(MAX_DIFFICULTY, next));
+    }
+}
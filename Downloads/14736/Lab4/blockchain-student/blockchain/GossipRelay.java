@@ -0,0 +1,216 @@
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lib.Hash256;
+
+/**
+ * Gossip Propagation of Mined Blocks
+ * The Miner only Hands a Block to its own Node; every Node Accepting a Block it has not Seen before
+ * Relays it to 'fanout' Random Peers (a Peer not Replying is Replaced by Another), so a Block Reaches
+ * all N Nodes in about log_fanout(N) Hops, and each Node Sends it about 'fanout' Times whatever the Cluster Size.
+ * A Bounded LRU of Accepted Block Hashes Answers Duplicates without Validating again.
+ * Every Reply Carries a Reach Table, One Byte per Node: REACHED if the Node Accepted the Block, UNREACHABLE
+ * if a Relay Found it Disconnected, 0 if Unknown (Rejected, Timed out, or not Reached by this Subtree).
+ * The Miner Merges them into the Votes of its Broadcast Quorum, and Sends the Block itself to the Nodes
+ * still Unknown: Random Relays may Miss a Node, which then could never Choose between Competing Blocks.
+ */
+public class GossipRelay {
+
+    /* Peers each Node Relays a New Block to, 0 Keeps the Miner Broadcasting to every Node, -Dblockchain.gossip.fanout=N */
+    public static final int DEFAULT_FANOUT = Integer.getInteger("blockchain.gossip.fanout", 0);
+
+    /* Block Hashes Remembered for Duplicate Suppression, -Dblockchain.gossip.seenSize=N */
+    public static final int DEFAULT_SEEN_CAPACITY = Integer.getInteger("blockchain.gossip.seenSize", 4096);
+
+    /* How Long a Node Waits for its Relays before Answering its own Sender, -Dblockchain.gossip.timeoutMillis=MS */
+    public static final long RELAY_TIMEOUT_MILLIS = Long.getLong("blockchain.gossip.timeoutMillis", 5000L);
+
+    /* Reach Table Entries */
+    public static final byte REACHED = 1;
+
+    public static final byte UNREACHABLE = 2;
+
+    private final int NodeID;
+
+    private final int num_peers;
+
+    private final int fanout;
+
+    private final Set<Hash256> seen; // Accepted Block Hashes, Least Recently Used Dropped first
+
+    private final ExecutorService relay_Pool;
+
+    private final Random random = new Random();
+
+    /**
+     * Constructor
+     * @param NodeID the Node relaying
+     * @param num_peers number of nodes in the network (including this one)
+     * @param fanout peers a new block is relayed to, 0 disables gossip
+     * @param seenCapacity block hashes remembered
+     */
+    public GossipRelay(final int NodeID, int num_peers, int fanout, final int seenCapacity) {
+        this.NodeID = NodeID;
+        this.num_peers = num_peers;
+        this.fanout = Math.max(0, Math.min(fanout, num_peers - 1));
+        this.seen = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<Hash256, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Hash256, Boolean> eldest) {
+                return size() > seenCapacity;
+            }
+        }));
+        final AtomicInteger threads = new AtomicInteger();
+        this.relay_Pool = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Node" + NodeID + "-gossip-" + threads.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return this.fanout > 0;
+    }
+
+    /**
+     * Peers a Block may be Relayed to, in Random Order, never this Node or an Excluded One
+     * @param exclude nodes known to have the block already (sender, miner)
+     */
+    public List<Integer> pickPeers(int... exclude) {
+        List<Integer> candidates = new ArrayList<Integer>();
+        for (int i = 0; i < this.num_peers; i++) {
+            boolean excluded = i == this.NodeID;
+            for (int e : exclude) {
+                excluded |= i == e;
+            }
+            if (!excluded) {
+                candidates.add(i);
+            }
+        }
+        Collections.shuffle(candidates, this.random);
+        return candidates;
+    }
+
+    /**
+     * Whether this Node Accepted a Block before <Rejections are not Remembered, a Retry is Validated again>
+     */
+    public boolean hasSeen(Hash256 hash) {
+        return this.seen.contains(hash);
+    }
+
+    public void markSeen(Hash256 hash) {
+        this.seen.add(hash);
+    }
+
+    /**
+     * Forward a Block to 'fanout' of the Candidate Peers at once, Waiting up to RELAY_TIMEOUT_MILLIS
+     * for their Replies, so the Sender's Answer Means the Block has Spread below this Node
+     * A Peer that does not Reply (Disconnected) is Replaced by the Next Candidate.
+     * @param reached the reach table the replies are merged into
+     */
+    public void relay(Node node, byte[] blockData, int index, List<Integer> candidates, byte[] reached) {
+        relay(node, blockData, index, candidates, this.fanout, reached);
+    }
+
+    /**
+     * Send a Block to every Node its Reach Table does not Know about yet <the Miner, after its Gossip Returned>
+     * @param reached the reach table, updated with the replies
+     */
+    public void fillGaps(Node node, byte[] blockData, int index, byte[] reached) {
+        List<Integer> missed = new ArrayList<Integer>();
+        for (int i = 0; i < reached.length; i++) {
+            if (reached[i] == 0 && i != this.NodeID) {
+                missed.add(i);
+            }
+        }
+        if (!missed.isEmpty()) {
+            System.out.println("Node" + this.NodeID + " Sends Block [" + index + "] to the " + missed.size()
+                    + " Nodes its Gossip did not Reach " + missed);
+            relay(node, blockData, index, missed, missed.size(), reached);
+        }
+    }
+
+    /**
+     * Send to 'width' of the Candidates at once, a Peer not Replying is Replaced by the Next Candidate
+     */
+    private void relay(final Node node, final byte[] blockData, int index, List<Integer> candidates, int width, byte[] reached) {
+        CompletionService<byte[]> replies = new ExecutorCompletionService<byte[]>(this.relay_Pool);
+        Map<Future<byte[]>, Integer> relays = new HashMap<Future<byte[]>, Integer>();
+        int next = 0;
+        long deadline = System.currentTimeMillis() + RELAY_TIMEOUT_MILLIS;
+        while (next < candidates.size() && relays.size() < width) {
+            relays.put(send(replies, node, candidates.get(next++), blockData), candidates.get(next - 1));
+        }
+        for (int pending = relays.size(); pending > 0; pending--) {
+            Future<byte[]> reply = null;
+            try {
+                reply = replies.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            if (reply == null) {
+                System.out.println("Node" + this.NodeID + " Relay of Block [" + index + "] Timed out on " + pending + " Peers");
+                break;
+            }
+            int peer = relays.get(reply);
+            try {
+                byte[] table = reply.get();
+                if (table == null) {
+                    /* Unreachable, Try Another Peer instead */
+                    merge(reached, peer, UNREACHABLE);
+                    if (next < candidates.size()) {
+                        relays.put(send(replies, node, candidates.get(next++), blockData), candidates.get(next - 1));
+                        pending++;
+                    }
+                }
+                else {
+                    for (int i = 0; i < table.length && i < reached.length; i++) {
+                        merge(reached, i, table[i]);
+                    }
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ee) {
+                System.out.println("Node" + this.NodeID + " Failed to Relay Block [" + index + "] to Node" + peer + ": " + ee.getCause());
+            }
+        }
+    }
+
+    /**
+     * Agree Votes in a Merged Reach Table, toward the Broadcast Quorum
+     * <Like a Missing Reply from the Controller, an Unreachable Node Counts as Agree>
+     */
+    public static int agreeVotes(byte[] reached) {
+        int votes = 0;
+        for (byte entry : reached) {
+            if (entry == REACHED || entry == UNREACHABLE) {
+                votes++;
+            }
+        }
+        return votes;
+    }
+
+    /**
+     * A Node Reached by any Path is Reached, even if Another Relay Found it Disconnected
+     */
+    private static void merge(byte[] reached, int node, byte entry) {
+        if (node < reached.length && entry != 0 && reached[node] != REACHED) {
+            reached[node] = entry;
+        }
+    }
+
+    private Future<byte[]> send(CompletionService<byte[]> replies, final Node node, final int peer, final byte[] blockData) {
+        return replies.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws RemoteException {
+                return node.relayBlockToPeer(peer, blockData);
+            }
+        });
+    }
+}
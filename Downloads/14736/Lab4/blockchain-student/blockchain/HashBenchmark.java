@@ -0,0 +1,131 @@
+import lib.HashEngine;
+import lib.HashEngines;
+import lib.NonceHasher;
+import lib.Sha256;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micro-Benchmark of the HashEngines in Hashes per Second
+ * Usage: java HashBenchmark [seconds_per_run] [threads]
+ */
+public class HashBenchmark {
+
+    private static final int DEFAULT_SECONDS = 3;
+
+    /* Warm-up before every Measured Run, so the JIT has Compiled the Hot Loop */
+    private static final int WARMUP_MILLIS = 1000;
+
+    /* A Typical Miner Prefix: Index + PreviousHash + data + timestamp + difficulty + extra-nonce */
+    private static final String BLOCK_INFO = ",1,00000f904f6f106cd1218ed56f0b10e7e1b6b9bdde4c8df2706024d09f7b42d5"
+            + ",Node0 mine,1792261026453,20,4294967296,";
+
+    private interface Workload {
+        /* Run until the Deadline, Return the Number of Hashes */
+        long run(HashEngine engine, long deadline);
+    }
+
+    /* One-Shot sha256Hex of the whole Block String, the way Blocks are Validated */
+    private static final Workload ONE_SHOT = new Workload() {
+        @Override
+        public long run(HashEngine engine, long deadline) {
+            long count = 0;
+            long nonce = Long.MIN_VALUE;
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < 1024; i++) {
+                    engine.sha256Hex((BLOCK_INFO + nonce++).getBytes());
+                }
+                count += 1024;
+            }
+            return count;
+        }
+    };
+
+    /* The Mining Loop: NonceHasher Batches + Leading Zero Bits */
+    private static final Workload MINING = new Workload() {
+        @Override
+        public long run(HashEngine engine, long deadline) {
+            NonceHasher hasher = engine.newNonceHasher(BLOCK_INFO.getBytes());
+            int lanes = hasher.lanes();
+            long count = 0;
+            long nonce = 0;
+            int sink = 0;
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < 1024; i++) {
+                    /* 256 Zero Bits never Hit, every Nonce of the Batch is Hashed */
+                    sink += hasher.search(nonce, Sha256.DIGEST_LENGTH * 8);
+                    nonce += lanes;
+                }
+                count += 1024L * lanes;
+            }
+            /* Keep the Result Alive */
+            if (sink == -1) {
+                System.out.println(sink);
+            }
+            return count;
+        }
+    };
+
+    private static double measure(final HashEngine engine, final Workload workload, int threads, long millis)
+            throws InterruptedException {
+        final AtomicLong total = new AtomicLong();
+        final long deadline = System.nanoTime() + millis * 1000000L;
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    total.addAndGet(workload.run(engine, deadline));
+                }
+            });
+            workers.add(t);
+            t.start();
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return total.get() / seconds;
+    }
+
+    /**
+     * All Engines must Agree with each other on the Same Input
+     */
+    private static boolean checkAgreement(HashEngine[] engines) {
+        byte[] input = (BLOCK_INFO + Long.MIN_VALUE).getBytes();
+        String expected = engines[0].sha256Hex(input);
+        boolean ok = true;
+        for (HashEngine engine : engines) {
+            NonceHasher hasher = engine.newNonceHasher(BLOCK_INFO.getBytes());
+            hasher.hash(Long.MIN_VALUE);
+            if (!expected.equals(engine.sha256Hex(input)) || !expected.equals(hasher.hex())) {
+                System.err.println("Error : Engine " + engine.getName() + " Disagrees on " + new String(input));
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SECONDS;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        HashEngine[] engines = HashEngines.all();
+        if (!checkAgreement(engines)) {
+            System.exit(-1);
+        }
+
+        System.out.println("SHA-256 Engines, " + threads + " Thread(s), " + seconds + "s per Run");
+        System.out.println(String.format("%-10s %18s %18s", "engine", "one-shot H/s", "mining H/s"));
+        for (HashEngine engine : engines) {
+            measure(engine, ONE_SHOT, threads, WARMUP_MILLIS);
+            double oneShot = measure(engine, ONE_SHOT, threads, seconds * 1000L);
+            measure(engine, MINING, threads, WARMUP_MILLIS);
+            double mining = measure(engine, MINING, threads, seconds * 1000L);
+            System.out.println(String.format("%-10s %,18.0f %,18.0f", engine.getName(), oneShot, mining));
+        }
+    }
+}
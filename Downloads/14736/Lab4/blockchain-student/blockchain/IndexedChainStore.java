@@ -0,0 +1,106 @@
+import lib.Block;
+import lib.Hash256;
+
+import java.util.*;
+
+/**
+ * In-Memory ChainStore
+ * Blocks by Height in an ArrayList, Heights by Hash in a HashMap Keyed on the Compact Hash256.
+ * Thread-Safe: Transport Threads Read while the Chain Manager Appends.
+ */
+public class IndexedChainStore implements ChainStore {
+
+    private final List<Block> blocks;
+
+    private final Map<Hash256, Integer> heights;
+
+    /* Read-only View, Every Access Locks the Store like the Methods below */
+    private final List<Block> view = new AbstractList<Block>() {
+        @Override
+        public Block get(int index) {
+            return IndexedChainStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return IndexedChainStore.this.size();
+        }
+    };
+
+    public IndexedChainStore() {
+        this.blocks = new ArrayList<Block>();
+        this.heights = new HashMap<Hash256, Integer>();
+    }
+
+    /**
+     * Build a Store over a whole Chain (e.g. one Downloaded from a Peer)
+     * @param chain blocks indexed by height
+     */
+    public IndexedChainStore(List<Block> chain) {
+        this.blocks = new ArrayList<Block>(chain.size());
+        this.heights = new HashMap<Hash256, Integer>(chain.size() * 4 / 3 + 1);
+        for (Block block : chain) {
+            append(block);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return this.blocks.size();
+    }
+
+    @Override
+    public synchronized Block get(int height) {
+        if (height < 0 || height >= this.blocks.size()) {
+            return null;
+        }
+        return this.blocks.get(height);
+    }
+
+    @Override
+    public synchronized Block getByHash(Hash256 hash) {
+        Integer height = this.heights.get(hash);
+        return height == null ? null : this.blocks.get(height);
+    }
+
+    @Override
+    public synchronized int heightOf(Hash256 hash) {
+        Integer height = this.heights.get(hash);
+        return height == null ? -1 : height;
+    }
+
+    @Override
+    public synchronized boolean contains(Hash256 hash) {
+        return this.heights.containsKey(hash);
+    }
+
+    @Override
+    public synchronized Block getTip() {
+        if (this.blocks.isEmpty()) {
+            return null;
+        }
+        return this.blocks.get(this.blocks.size() - 1);
+    }
+
+    @Override
+    public synchronized void append(Block block) {
+        if (!this.blocks.isEmpty()) {
+            block.linkTo(this.blocks.get(this.blocks.size() - 1));
+        }
+        this.heights.put(block.getHashKey(), this.blocks.size());
+        this.blocks.add(block);
+    }
+
+    @Override
+    public synchronized void truncate(int size) {
+        while (this.blocks.size() > size) {
+            Block dropped = this.blocks.remove(this.blocks.size() - 1);
+            this.heights.remove(dropped.getHashKey());
+        }
+    }
+
+    @Override
+    public List<Block> asList() {
+        return this.view;
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background Mining Service of a Node
+ * Mining Requests go into a Bounded Work Queue and are Worked Through by Dedicated Miner Threads,
+ * so neither the Transport (RMI) Threads nor the Controller are Held for the whole Proof-of-Work.
+ * Every Mined Block Still Lands on the Chain's Minded_Block_Queue through createNewBlock.
+ */
+public class MiningService {
+
+    /* Pending Mining Requests Allowed, -Dblockchain.miner.queue=N */
+    public static final int DEFAULT_QUEUE_CAPACITY = Integer.getInteger("blockchain.miner.queue", 16);
+
+    /* Concurrent Mining Rounds, each Round Already Uses all ParallelMiner Workers, -Dblockchain.miner.service=N */
+    public static final int DEFAULT_MINER_THREADS = Integer.getInteger("blockchain.miner.service", 1);
+
+    /* How Long a Finished Ticket's Result is Kept for a Caller that has not Fetched it, -Dblockchain.miner.ticketTtlMillis=MS */
+    public static final long TICKET_TTL_MILLIS = Long.getLong("blockchain.miner.ticketTtlMillis", 60000L);
+
+    private final int NodeID;
+
+    private final BlockChainBase blockChainManager;
+
+    private final BlockingQueue<FutureTask<byte[]>> work_Queue;
+
+    /* Handles of Submitted Requests, Looked up by Ticket from the Controller
+       <Released when Fetched, or TICKET_TTL_MILLIS after the Request Finished> */
+    private final Map<Integer, FutureTask<byte[]>> tickets = new ConcurrentHashMap<Integer, FutureTask<byte[]>>();
+
+    private final ScheduledExecutorService ticket_Evictor;
+
+    private final AtomicInteger nextTicket = new AtomicInteger();
+
+    /**
+     * Constructor, Starts the Miner Threads right away
+     * @param NodeID the Node owning this Service
+     * @param blockChainManager the chain the blocks are mined on
+     * @param capacity bound of the work queue
+     * @param minerThreads number of dedicated miner threads
+     */
+    public MiningService(int NodeID, BlockChainBase blockChainManager, int capacity, int minerThreads) {
+        this.NodeID = NodeID;
+        this.blockChainManager = blockChainManager;
+        this.work_Queue = new ArrayBlockingQueue<FutureTask<byte[]>>(Math.max(1, capacity));
+        this.ticket_Evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Node" + NodeID + "-mining-tickets");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        for (int i = 0; i < Math.max(1, minerThreads); i++) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    minerLoop();
+                }
+            }, "Node" + NodeID + "-mining-service-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Take Requests off the Work Queue One by One
+     */
+    private void minerLoop() {
+        while (true) {
+            FutureTask<byte[]> task;
+            try {
+                task = this.work_Queue.take();
+            } catch (InterruptedException ie) {
+                return;
+            }
+            task.run();
+        }
+    }
+
+    private FutureTask<byte[]> newTask(final String data) {
+        return newTask(data, -1);
+    }
+
+    /**
+     * @param ticket the ticket the request is registered under, released TICKET_TTL_MILLIS after it finishes; -1 for none
+     */
+    private FutureTask<byte[]> newTask(final String data, final int ticket) {
+        return new FutureTask<byte[]>(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return blockChainManager.createNewBlock(data);
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (ticket >= 0) {
+                    final FutureTask<byte[]> handle = this;
+                    ticket_Evictor.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            tickets.remove(ticket, handle);
+                        }
+                    }, TICKET_TTL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+        };
+    }
+
+    /**
+     * Queue a Mining Request, Blocking while the work queue is full
+     * @param data the data contained in the block
+     * @return the handle to poll or wait on
+     */
+    public Future<byte[]> submitAndWaitForSlot(String data) throws InterruptedException {
+        FutureTask<byte[]> task = newTask(data);
+        this.work_Queue.put(task);
+        return task;
+    }
+
+    /**
+     * Queue a Mining Request and Register its Handle under a Ticket
+     * @param data the data contained in the block
+     * @return the ticket, -1 if the work queue is full
+     */
+    public int submitTicket(String data) {
+        int ticket = this.nextTicket.getAndIncrement();
+        FutureTask<byte[]> handle = newTask(data, ticket);
+        /* Registered before it can Run, the Eviction of a Finished Request Finds it */
+        this.tickets.put(ticket, handle);
+        if (!this.work_Queue.offer(handle)) {
+            this.tickets.remove(ticket);
+            System.out.println("Node" + this.NodeID + " Mining Queue Full, Request Rejected");
+            return -1;
+        }
+        return ticket;
+    }
+
+    /**
+     * Whether the Request of a Ticket has Finished
+     * @param ticket the ticket from submitTicket
+     * @return true once the result can be fetched without waiting, false for an unknown (or expired) ticket
+     */
+    public boolean isDone(int ticket) {
+        Future<byte[]> handle = this.tickets.get(ticket);
+        if (handle == null) {
+            System.err.println("Node" + this.NodeID + " Unknown Mining Ticket " + ticket);
+            return false;
+        }
+        return handle.isDone();
+    }
+
+    /**
+     * Wait for the Request of a Ticket, the Ticket is Released Afterwards
+     * @param ticket the ticket from submitTicket
+     * @return the byte representation of the mined block, null if preempted or unknown (or expired) ticket
+     */
+    public byte[] await(int ticket) {
+        Future<byte[]> handle = this.tickets.get(ticket);
+        if (handle == null) {
+            System.err.println("Node" + this.NodeID + " Unknown Mining Ticket " + ticket);
+            return null;
+        }
+        byte[] ret = await(handle);
+        this.tickets.remove(ticket);
+        return ret;
+    }
+
+    /**
+     * Wait for a Mining Handle
+     * @return the byte representation of the mined block, null if preempted or failed
+     */
+    public byte[] await(Future<byte[]> handle) {
+        try {
+            return handle.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            ee.printStackTrace();
+        }
+        return null;
+    }
+}
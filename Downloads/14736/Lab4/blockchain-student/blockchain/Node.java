@@ -1,6 +1,8 @@
 import lib.*;
 
 import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is for the distributed miner node, each Node is a client to for
@@ -10,10 +12,25 @@ public class Node implements MessageHandling {
     private int id;
     private static TransportLib lib;
     private int num_peers;
-    private int wallet;
+    private final AtomicInteger wallet = new AtomicInteger();
     BlockChainBase blockChainManager;
+    private MiningService miningService; // Background Miner Threads feeding the Chain's Mined Block Queue
+    private GossipRelay gossip; // Relays Accepted Blocks on to Random Peers, if -Dblockchain.gossip.fanout is Set
     private final Object lock = new Object(); // For Synchronized Operation
 
+    /* Compact Relay: Send Block Headers, Peers Fetch the Body if they Need it, -Dblockchain.broadcast.compact=true */
+    private static final boolean COMPACT_RELAY = Boolean.getBoolean("blockchain.broadcast.compact");
+
+    /* Bodies of the Blocks this Node Announced Lately, Served to Peers Fetching them */
+    private final Map<Hash256, byte[]> announced = Collections.synchronizedMap(new LinkedHashMap<Hash256, byte[]>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Hash256, byte[]> eldest) {
+            return size() > 64;
+        }
+    });
+
 
     /**
      * Node constructor
@@ -23,13 +40,19 @@ public class Node implements MessageHandling {
      */
     public Node(int port, int id, int num_peers) {
         this.id = id;
-        lib = new TransportLib(port, id, this);
-        wallet = 0;
         this.num_peers = num_peers;
         //TODO: instantiate your blockchain implementation and set the difficulty to 20.
-        /* Generate the BlockChain Object associated with this Node */
-        blockChainManager = new ConcreteBlockChain(this.id, this);
+        /* Generate the BlockChain Object associated with this Node
+           <Before Registering to the Transport, getState may Arrive right after Registration>
+         */
+        HashEngine hashEngine = HashEngines.fromSystemProperty();
+        System.out.println("Node"+this.id+" Hashing with the '"+hashEngine.getName()+"' SHA-256 Engine");
+        blockChainManager = new ConcreteBlockChain(this.id, this, hashEngine);
         blockChainManager.setDifficulty(20);
+        miningService = new MiningService(this.id, blockChainManager,
+                MiningService.DEFAULT_QUEUE_CAPACITY, MiningService.DEFAULT_MINER_THREADS);
+        gossip = new GossipRelay(this.id, num_peers, GossipRelay.DEFAULT_FANOUT, GossipRelay.DEFAULT_SEEN_CAPACITY);
+        lib = new TransportLib(port, id, this);
     }
 
     /**
@@ -45,19 +68,115 @@ public class Node implements MessageHandling {
         Block newBlock = null;
         switch (message.getType()) {
             // for blockchain to use
+            /* Agree Replies Carry the Reach Table of the Block <GossipRelay.REACHED / UNREACHABLE per Node> */
             case ON_BROADCAST_NEW_BLOCK:
-                data = message.getBody();
-                newBlock = Block.fromString(new String(data));
-                boolean agree = blockChainManager.addBlock(newBlock);
+                boolean agree;
+                try {
+                    newBlock = BlockCodec.decodeBlock(message.getBody());
+                    data = acceptBlock(newBlock, message.getBody(), message.getSrc());
+                } catch (RuntimeException re) {
+                    System.out.println("Node "+this.id+" Cannot Decode Broadcast Block: "+re);
+                    data = null;
+                }
+                agree = data != null;
+                if(agree) {
+                    type = MessageType.AGREE_BROADCAST_NEW_BLOCK;
+                }
+                else
+                    type = MessageType.DISAGREE_BROADCAST_NEW_BLOCK;
+                break;
+            /* Compact Relay: a Known Block or a Header Failing the Proof-of-Work Check Costs no Body Transfer */
+            case ANNOUNCE_BLOCK_HEADER:
+                data = null;
+                try {
+                    Block header = BlockCodec.decodeHeader(message.getBody());
+                    if(blockChainManager.hasBlock(header.getHashKey()))
+                        data = new byte[num_peers]; // Agree, Counted where it was First Accepted
+                    else if(blockChainManager.isValidNextHeader(header)) {
+                        byte[] body = fetchBlockBody(message.getSrc(), header.getHashKey());
+                        newBlock = body == null ? null : BlockCodec.decodeBlock(body);
+                        if(newBlock != null && newBlock.getHashKey().equals(header.getHashKey()))
+                            data = acceptBlock(newBlock, body, message.getSrc());
+                    }
+                } catch (RemoteException | RuntimeException e) {
+                    System.out.println("Node "+this.id+" Cannot Get Announced Block: "+e);
+                    data = null;
+                }
+                agree = data != null;
+                if(agree) {
+                    type = MessageType.AGREE_BROADCAST_NEW_BLOCK;
+                }
+                else
+                    type = MessageType.DISAGREE_BROADCAST_NEW_BLOCK;
+                break;
+            /* Batch of Consecutive Blocks: Added All or Nothing, One Vote Byte per Block in the Reply */
+            case ON_BROADCAST_NEW_BLOCKS:
+                boolean[] votes = new boolean[0];
+                try {
+                    List<Block> blocks = new ArrayList<Block>();
+                    ChainReader reader = new ChainReader(message.getBody());
+                    while(reader.hasNext())
+                        blocks.add(reader.next());
+                    if(!blocks.isEmpty()) {
+                        synchronized (lock) {
+                            votes = blockChainManager.addBlocks(blocks);
+                            /* A Gossiped Copy Arriving Later is Agreed to without Validating again */
+                            if(gossip.isEnabled() && votes[votes.length - 1]) {
+                                for(Block block : blocks)
+                                    gossip.markSeen(block.getHashKey());
+                            }
+                        }
+                    }
+                } catch (RuntimeException re) {
+                    System.out.println("Node "+this.id+" Cannot Decode Broadcast Blocks: "+re);
+                }
+                data = new byte[votes.length];
+                agree = votes.length > 0;
+                for(int k=0; k<votes.length; k++) {
+                    data[k] = (byte) (votes[k] ? 1 : 0);
+                    agree &= votes[k];
+                }
                 if(agree) {
                     type = MessageType.AGREE_BROADCAST_NEW_BLOCK;
                 }
                 else
                     type = MessageType.DISAGREE_BROADCAST_NEW_BLOCK;
                 break;
+            case GET_BLOCK_BODY:
+                type = MessageType.GET_BLOCK_BODY;
+                try {
+                    Hash256 hash = BlockCodec.decodeHash(message.getBody());
+                    data = announced.get(hash);
+                    if(data == null)
+                        data = blockChainManager.getBlockData(hash);
+                } catch (RuntimeException re) {
+                    System.out.println("Node "+this.id+" Cannot Decode Block Hash: "+re);
+                    data = null;
+                }
+                break;
             case GET_BLOCKCHAIN_DATA:
-                type = MessageType.GET_BLOCKCHAIN_DATA;
-                data = blockChainManager.getBlockchainData();
+                /* The Chain's Own Buffer goes on the Wire, no Copy per Request */
+                return new Message(MessageType.GET_BLOCKCHAIN_DATA, message.getDest(),
+                        message.getSrc(), blockChainManager.getBlockchainData());
+            /* Delta Sync: Common Ancestor by Block Locator, then only the Missing Suffix */
+            case GET_COMMON_ANCESTOR:
+                type = MessageType.GET_COMMON_ANCESTOR;
+                try {
+                    data = blockChainManager.locateCommonAncestor(message.getBody());
+                } catch (RuntimeException re) {
+                    System.out.println("Node "+this.id+" Cannot Decode Block Locator: "+re);
+                    data = null;
+                }
+                break;
+            case GET_BLOCK_RANGE:
+                type = MessageType.GET_BLOCK_RANGE;
+                try {
+                    int[] range = BlockCodec.decodeRange(message.getBody());
+                    data = blockChainManager.getBlockchainDataRange(range[0], range[1]);
+                } catch (RuntimeException re) {
+                    System.out.println("Node "+this.id+" Cannot Decode Block Range: "+re);
+                    data = null;
+                }
                 break;
             default:
         }
@@ -67,6 +186,84 @@ public class Node implements MessageHandling {
         return reply;
     }
 
+    /**
+     * Add a block received from a peer, relaying it on in gossip mode.
+     * @param newBlock the decoded block.
+     * @param blockData the byte representation of the block.
+     * @param src the node the block came from.
+     * @return the nodes the block reached through this node (this one and, in gossip mode,
+     * the ones it relayed to), null if this node rejects the block.
+     */
+    private byte[] acceptBlock(Block newBlock, byte[] blockData, int src) {
+        byte[] reached = new byte[num_peers];
+        if(!gossip.isEnabled()) {
+            synchronized (lock) {
+                if(!blockChainManager.addBlock(newBlock))
+                    return null;
+            }
+            reached[id] = GossipRelay.REACHED;
+            return reached;
+        }
+
+        /* Gossip: a Block Accepted before and still on the Chain is Agreed to at once <Counted where it was First Accepted>,
+           a New One is Relayed on; One Replaced by a Competing Block since is Validated again, and Rejected */
+        List<Integer> relay_peers = null;
+        synchronized (lock) {
+            if(!gossip.hasSeen(newBlock.getHashKey()) || !blockChainManager.hasBlock(newBlock.getHashKey())) {
+                if(!blockChainManager.addBlock(newBlock))
+                    return null;
+                gossip.markSeen(newBlock.getHashKey());
+                reached[id] = GossipRelay.REACHED;
+                /* Not to the Sender nor the Miner <High Half of the Extra-Nonce>, they have it */
+                relay_peers = gossip.pickPeers(src, (int) (newBlock.getExtraNonce() >>> 32));
+            }
+        }
+        if(relay_peers != null) {
+            gossip.relay(this, blockData, newBlock.getIndex(), relay_peers, reached);
+        }
+        return reached;
+    }
+
+    /**
+     * Gossip a block mined here: this node adds it and relays it on, then sends it straight to
+     * the nodes the gossip did not reach, so every node gets to choose between competing blocks.
+     * @param blockData the byte representation of the block.
+     * @return the nodes the block reached or found unreachable, null if this node rejects the block.
+     */
+    public byte[] gossipNewBlock(byte[] blockData) {
+        Block newBlock = BlockCodec.decodeBlock(blockData);
+        byte[] reached = acceptBlock(newBlock, blockData, id);
+        if(reached != null)
+            gossip.fillGaps(this, blockData, newBlock.getIndex(), reached);
+        return reached;
+    }
+
+    /**
+     * Body of an announced block: from this node if it announced the block itself, else from the announcer.
+     */
+    private byte[] fetchBlockBody(int peerAddr, Hash256 hash) throws RemoteException {
+        byte[] body = announced.get(hash);
+        if(body != null)
+            return body;
+        Message m = new Message(MessageType.GET_BLOCK_BODY,
+                id, peerAddr, BlockCodec.encodeHash(hash));
+        Message reply = lib.sendMessage(m);
+        if(reply == null || reply.getType() != MessageType.GET_BLOCK_BODY)
+            return null;
+        return reply.getBody();
+    }
+
+    /**
+     * Message carrying a block to a peer: the whole block, or only its header in compact relay mode.
+     */
+    private Message blockMessage(int peerAddr, byte[] blockData) {
+        if(!COMPACT_RELAY)
+            return new Message(MessageType.ON_BROADCAST_NEW_BLOCK, id, peerAddr, blockData);
+        byte[] header = BlockCodec.headerOf(blockData);
+        announced.put(BlockCodec.decodeHeader(header).getHashKey(), blockData);
+        return new Message(MessageType.ANNOUNCE_BLOCK_HEADER, id, peerAddr, header);
+    }
+
     /**
      * This method is for BlockChainBase implementation.
      * You will need to call this method when you want to download the
@@ -78,8 +275,41 @@ public class Node implements MessageHandling {
     public byte[] getBlockChainDataFromPeer(int peerAddr)
             throws RemoteException {
         Message m = new Message(MessageType.GET_BLOCKCHAIN_DATA,
-                id, peerAddr, null);
+                id, peerAddr, (byte[]) null);
+        Message reply = lib.sendMessage(m);
+        return reply.getBody();
+    }
+
+    /**
+     * Ask a peer for the common ancestor of its chain and the given block locator.
+     * @param peerAddr the peer address.
+     * @param locator the encoded block locator of this node's chain.
+     * @return the encoded ancestor reply, null if the peer does not support delta sync.
+     */
+    public byte[] getCommonAncestorFromPeer(int peerAddr, byte[] locator)
+            throws RemoteException {
+        Message m = new Message(MessageType.GET_COMMON_ANCESTOR,
+                id, peerAddr, locator);
         Message reply = lib.sendMessage(m);
+        if(reply == null || reply.getType() != MessageType.GET_COMMON_ANCESTOR)
+            return null;
+        return reply.getBody();
+    }
+
+    /**
+     * Download one page of a peer's chain.
+     * @param peerAddr the peer address.
+     * @param height the first height of the page.
+     * @param count the maximum number of blocks in the page.
+     * @return the byte representation of the blocks, null if not supported.
+     */
+    public byte[] getBlockRangeFromPeer(int peerAddr, int height, int count)
+            throws RemoteException {
+        Message m = new Message(MessageType.GET_BLOCK_RANGE,
+                id, peerAddr, BlockCodec.encodeRange(height, count));
+        Message reply = lib.sendMessage(m);
+        if(reply == null || reply.getType() != MessageType.GET_BLOCK_RANGE)
+            return null;
         return reply.getBody();
     }
 
@@ -93,8 +323,7 @@ public class Node implements MessageHandling {
      */
     public boolean broadcastNewBlockToPeer(int peerAddr, byte[] blockData)
             throws RemoteException {
-        Message m = new Message(MessageType.ON_BROADCAST_NEW_BLOCK,
-                id, peerAddr, blockData);
+        Message m = blockMessage(peerAddr, blockData);
         Message reply = lib.sendMessage(m);
 
         if(reply == null)
@@ -111,6 +340,58 @@ public class Node implements MessageHandling {
         }
     }
 
+    /**
+     * Broadcast consecutive new blocks to a peer in one message.
+     * @param peerAddr the address of your peer.
+     * @param batchData the byte representation of the blocks.
+     * @return one vote per block, null if the peer did not reply.
+     */
+    public boolean[] broadcastNewBlocksToPeer(int peerAddr, byte[] batchData)
+            throws RemoteException {
+        Message m = new Message(MessageType.ON_BROADCAST_NEW_BLOCKS,
+                id, peerAddr, batchData);
+        Message reply = lib.sendMessage(m);
+        if(reply == null)
+            return null;
+        byte[] body = reply.getBody();
+        boolean[] votes = new boolean[body == null ? 0 : body.length];
+        for(int k=0; k<votes.length; k++)
+            votes[k] = body[k] != 0;
+        return votes;
+    }
+
+    /**
+     * Relay a block to a peer (gossip mode).
+     * @param peerAddr the address of the peer.
+     * @param blockData the byte representation of the block.
+     * @return the nodes the block reached through the peer (empty if it rejected the block),
+     * null if it did not reply.
+     */
+    public byte[] relayBlockToPeer(int peerAddr, byte[] blockData)
+            throws RemoteException {
+        Message m = blockMessage(peerAddr, blockData);
+        Message reply = lib.sendMessage(m);
+        if(reply == null)
+            return null;
+        if(reply.getType() != MessageType.AGREE_BROADCAST_NEW_BLOCK || reply.getBody() == null)
+            return new byte[num_peers];
+        return reply.getBody();
+    }
+
+    /**
+     * Whether blocks are announced by header, peers fetching the body <-Dblockchain.broadcast.compact=true>.
+     */
+    public boolean isCompactRelay(){
+        return COMPACT_RELAY;
+    }
+
+    /**
+     * Whether mined blocks spread by gossip <GossipRelay> rather than straight to every node.
+     */
+    public boolean isGossipEnabled(){
+        return gossip.isEnabled();
+    }
+
     /**
      * Get the number of nodes in the network
      * @return the number of nodes.
@@ -143,7 +424,43 @@ public class Node implements MessageHandling {
      */
     @Override
     public byte[] mineNewBlock(byte[] data) {
-        return blockChainManager.createNewBlock(new String(data));
+        /* Go through the Mining Service, so Requests are Worked Through in Order */
+        try {
+            return miningService.await(miningService.submitAndWaitForSlot(new String(data)));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Queue a mining request without waiting for the proof-of-work
+     * @param data the byte representation for the string data.
+     * @return the ticket to poll or wait on, -1 if the mining queue is full.
+     */
+    @Override
+    public int submitMiningRequest(byte[] data) {
+        return miningService.submitTicket(new String(data));
+    }
+
+    /**
+     * Whether a queued mining request has finished
+     * @param ticket the ticket from submitMiningRequest
+     * @return true if getMinedBlock will not wait, false for an unknown ticket.
+     */
+    @Override
+    public boolean isMiningDone(int ticket) {
+        return miningService.isDone(ticket);
+    }
+
+    /**
+     * Wait for a queued mining request
+     * @param ticket the ticket from submitMiningRequest
+     * @return byte representation of the new block mined, null if preempted.
+     */
+    @Override
+    public byte[] getMinedBlock(int ticket) {
+        return miningService.await(ticket);
     }
 
     /**
@@ -153,10 +470,34 @@ public class Node implements MessageHandling {
      */
     @Override
     public void broadcastNewBlock() {
+        /* Credited once the Quorum of Nodes Agreed <-Dblockchain.broadcast.quorum, All by Default> */
         if(blockChainManager.broadcastNewBlock()) {
-            wallet++;
             System.out.println("Node " + id + " get a coin, " +
-                    wallet + " total");
+                    wallet.incrementAndGet() + " total");
+        }
+    }
+
+    /**
+     * Give back the coin of a block mined here that lost its place on the chain to a competing block.
+     * @param block the replaced block.
+     */
+    public void revokeCoin(Block block) {
+        System.out.println("Node " + id + " lose the coin of replaced Block [" + block.getIndex() + "], " +
+                wallet.decrementAndGet() + " total");
+    }
+
+    /**
+     * broadcast the run of consecutive blocks waiting for broadcast
+     * The test will call this method to require the node to send all its
+     * queued blocks to its peers at once.
+     */
+    @Override
+    public void broadcastNewBlocks() {
+        /* A Coin per Block of the Run Accepted */
+        int accepted = blockChainManager.broadcastNewBlocks();
+        if(accepted > 0) {
+            System.out.println("Node " + id + " get " + (accepted == 1 ? "a coin" : accepted + " coins") + ", " +
+                    wallet.addAndGet(accepted) + " total");
         }
     }
 
@@ -0,0 +1,190 @@
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lib.Block;
+import lib.HashEngine;
+import lib.NonceHasher;
+
+/**
+ * Multi-Threaded Proof-of-Work Engine
+ * Every Worker Hashes under its own Extra-Nonce (NodeID, Worker Index), so no two Workers,
+ * on this Node or any Peer, ever Hash the same Block String; each Counts its Nonce up from 0.
+ * The First Worker that Finds a Hash meeting the Prefix Stops all the Others.
+ */
+public class ParallelMiner {
+
+    /* Default Worker Number, can be Overridden by -Dblockchain.miner.threads=N */
+    public static final int DEFAULT_WORKERS =
+            Integer.getInteger("blockchain.miner.threads", Runtime.getRuntime().availableProcessors());
+
+    /* How many Nonces a Worker tries before Checking the Stop Flag */
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    private final int NodeID;
+
+    private final int numWorkers;
+
+    private final HashEngine hashEngine;
+
+    private final ExecutorService workers;
+
+    /**
+     * Outcome of One Mining Round
+     */
+    public static class Result {
+        public final boolean found;
+        public final long extraNonce;
+        public final long nonce;
+        public final String hash;
+        public final long hashes; // Nonces Tried by all Workers in this Round
+
+        Result(boolean found, long extraNonce, long nonce, String hash, long hashes) {
+            this.found = found;
+            this.extraNonce = extraNonce;
+            this.nonce = nonce;
+            this.hash = hash;
+            this.hashes = hashes;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param NodeID the Node owning this Miner (For Thread Names and Logging)
+     * @param numWorkers number of Worker Threads (one Extra-Nonce each)
+     * @param hashEngine the SHA-256 backend the workers hash with
+     */
+    public ParallelMiner(final int NodeID, int numWorkers, HashEngine hashEngine) {
+        if (numWorkers < 1) {
+            numWorkers = 1;
+        }
+        this.NodeID = NodeID;
+        this.numWorkers = numWorkers;
+        this.hashEngine = hashEngine;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        /* Daemon Threads, Never Keep the Node Process Alive on their own */
+        this.workers = Executors.newFixedThreadPool(numWorkers, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Node" + NodeID + "-miner-" + threadCount.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Extra-Nonce of a Worker: NodeID in the High 32 Bits, Worker Index in the Low 32 Bits
+     */
+    public static long extraNonce(int NodeID, int worker) {
+        return ((long) NodeID << 32) | (worker & 0xffffffffL);
+    }
+
+    /**
+     * Search the Nonce Space in Parallel
+     * @param BlockInfo the constant part of the block (Index + PreviousHash + data + timestamp + difficulty),
+     *                  each worker appends its extra-nonce
+     * @param zeroBits required Leading Zero Bits of the Hash for Proof-of-Work
+     * @param preempted raised by the Chain when its Tip Moves, Stops all Workers within Milliseconds
+     * @return the round outcome, not found if preempted or the whole space is exhausted
+     */
+    public Result mine(String BlockInfo, final int zeroBits, final AtomicBoolean preempted) {
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicLong hashes = new AtomicLong();
+        CompletionService<Result> completion = new ExecutorCompletionService<Result>(this.workers);
+
+        for (int i = 0; i < this.numWorkers; i++) {
+            final long extraNonce = extraNonce(this.NodeID, i);
+            /* Same UTF-8 Bytes the Verifier Hashes, (BlockInfo + extraNonce + "," + nonce) minus the Nonce Digits */
+            final byte[] prefix = (BlockInfo + extraNonce + Block.SEPARATOR).getBytes(StandardCharsets.UTF_8);
+            /* Small Nonces First: Fewer Digits, the Message Tail Stays in One SHA-256 Block Longer */
+            completion.submit(new Callable<Result>() {
+                @Override
+                public Result call() {
+                    return searchStripe(prefix, extraNonce, zeroBits, 0, Long.MAX_VALUE, stop, preempted, hashes);
+                }
+            });
+        }
+
+        Result winner = null;
+        try {
+            /* Take Results in Completion Order, the First Hit Wins */
+            for (int i = 0; i < this.numWorkers; i++) {
+                Result r = completion.take().get();
+                if (r != null && winner == null) {
+                    winner = r;
+                    stop.set(true);
+                }
+            }
+        } catch (InterruptedException ie) {
+            stop.set(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            stop.set(true);
+            ee.printStackTrace();
+        }
+
+        if (winner == null) {
+            return new Result(false, 0, 0, null, hashes.get());
+        }
+        return new Result(true, winner.extraNonce, winner.nonce, winner.hash, hashes.get());
+    }
+
+    /**
+     * Brute-force One Stripe [start, end] of the Nonce Space under One Extra-Nonce
+     */
+    private Result searchStripe(byte[] prefix, long extraNonce, int zeroBits, long start, long end,
+                                AtomicBoolean stop, AtomicBoolean preempted, AtomicLong hashes) {
+        /* Own Hasher per Stripe, Nothing is Allocated inside the Loop */
+        NonceHasher hasher = this.hashEngine.newNonceHasher(prefix);
+        /* Multi-Lane Hashers Test a Batch of Consecutive Nonces per Call */
+        int lanes = hasher.lanes();
+        int sinceCheck = 0;
+        long tried = 0;
+        try {
+            long nonce = start;
+            while (true) {
+                if ((sinceCheck += lanes) >= STOP_CHECK_INTERVAL) {
+                    sinceCheck = 0;
+                    if (stop.get() || preempted.get()) {
+                        return null;
+                    }
+                }
+
+                /* Whole Batch Fits before the Stripe End (Unsigned, no Overflow near Long.MAX_VALUE) */
+                if (Long.compareUnsigned(end - nonce, lanes - 1) >= 0) {
+                    int hit = hasher.search(nonce, zeroBits);
+                    if (hit >= 0) {
+                        tried += hit + 1;
+                        /* Tell the other Stripes to Stop right away */
+                        stop.set(true);
+                        return new Result(true, extraNonce, nonce + hit, hasher.hex(), 0);
+                    }
+                    tried += lanes;
+                    if (nonce + lanes - 1 == end) {
+                        return null;
+                    }
+                    nonce += lanes;
+                }
+                else {
+                    /* Last Partial Batch of the Stripe, One Nonce at a Time */
+                    hasher.hash(nonce);
+                    tried++;
+                    if (hasher.leadingZeroBits() >= zeroBits) {
+                        stop.set(true);
+                        return new Result(true, extraNonce, nonce, hasher.hex(), 0);
+                    }
+                    if (nonce == end) {
+                        return null;
+                    }
+                    nonce++;
+                }
+            }
+        } finally {
+            hashes.addAndGet(tried);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+import lib.Block;
+import lib.BlockCodec;
+import lib.BlockLog;
+import lib.Hash256;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Durable ChainStore on a lib.BlockLog
+ * Blocks Live in the Memory-Mapped Log and are Decoded on Demand, only the Hash Index
+ * (Rebuilt from the Log's Index File, no Block Parsing) and the Tip are Kept on the Heap.
+ * A Background Thread Syncs the Log every SYNC_MILLIS, so Appends never Wait for the Disk.
+ */
+public class PersistentChainStore implements ChainStore {
+
+    /* Root of the Node Data Directories, Unset keeps the Chain in Memory only, -Dblockchain.data.dir=PATH */
+    public static final String DATA_DIR = System.getProperty("blockchain.data.dir");
+
+    /* Group Commit Interval, -Dblockchain.data.syncMillis=MS */
+    public static final long SYNC_MILLIS = Long.getLong("blockchain.data.syncMillis", 200L);
+
+    private final int NodeID;
+
+    private final BlockLog log;
+
+    private final Map<Hash256, Integer> heights = new HashMap<Hash256, Integer>();
+
+    private Block tip;
+
+    private final List<Block> view = new AbstractList<Block>() {
+        @Override
+        public Block get(int index) {
+            return PersistentChainStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return PersistentChainStore.this.size();
+        }
+    };
+
+    /**
+     * Constructor, Maps the Node's Log and Rebuilds the Hash Index and the Tip
+     * @param NodeID the Node owning this Store
+     * @param dir directory of the Node's log
+     */
+    public PersistentChainStore(int NodeID, File dir) throws IOException {
+        this.NodeID = NodeID;
+        this.log = new BlockLog(dir);
+
+        /* A Record whose CRC Survived but whose Content is not the Indexed Block is Dropped */
+        while (this.log.size() > 0) {
+            Block last = decode(this.log.size() - 1);
+            if (last.getHashKey().equals(this.log.hashAt(this.log.size() - 1))) {
+                this.tip = last;
+                break;
+            }
+            System.err.println("Node" + this.NodeID + " Dropping Torn Block Record at Height " + (this.log.size() - 1));
+            this.log.truncate(this.log.size() - 1);
+        }
+        for (int i = 0; i < this.log.size(); i++) {
+            this.heights.put(this.log.hashAt(i), i);
+        }
+
+        Thread syncer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(SYNC_MILLIS);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    log.sync();
+                }
+            }
+        }, "Node" + NodeID + "-block-log-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+
+        /* Flush the last Batch on a Normal Exit */
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                log.sync();
+            }
+        }));
+    }
+
+    /**
+     * Store of a Node: Durable under DATA_DIR/node<NodeID> if DATA_DIR is Set, otherwise In-Memory
+     */
+    public static ChainStore open(int NodeID) {
+        if (DATA_DIR == null) {
+            return new IndexedChainStore();
+        }
+        try {
+            return new PersistentChainStore(NodeID, new File(DATA_DIR, "node" + NodeID));
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            System.err.println("Error: Node" + NodeID + " Failed to Open its Block Log under " + DATA_DIR);
+            System.exit(-1);
+        }
+        return null;
+    }
+
+    private Block decode(int height) throws IOException {
+        return BlockCodec.decodeBlock(this.log.read(height));
+    }
+
+    @Override
+    public synchronized int size() {
+        return this.log.size();
+    }
+
+    @Override
+    public synchronized Block get(int height) {
+        if (height < 0 || height >= this.log.size()) {
+            return null;
+        }
+        if (height == this.log.size() - 1) {
+            return this.tip;
+        }
+        try {
+            return decode(height);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            System.exit(-1);
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Block getByHash(Hash256 hash) {
+        Integer height = this.heights.get(hash);
+        return height == null ? null : get(height);
+    }
+
+    @Override
+    public synchronized int heightOf(Hash256 hash) {
+        Integer height = this.heights.get(hash);
+        return height == null ? -1 : height;
+    }
+
+    @Override
+    public synchronized boolean contains(Hash256 hash) {
+        return this.heights.containsKey(hash);
+    }
+
+    @Override
+    public synchronized Block getTip() {
+        return this.tip;
+    }
+
+    @Override
+    public synchronized void append(Block block) {
+        if (this.tip != null) {
+            block.linkTo(this.tip);
+        }
+        Hash256 hash = block.getHashKey();
+        try {
+            this.log.append(hash, BlockCodec.encodeBlock(block));
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            System.err.println("Error: Node" + this.NodeID + " Failed to Append Block [" + block.getIndex() + "] to its Block Log");
+            System.exit(-1);
+        }
+        this.heights.put(hash, this.log.size() - 1);
+        this.tip = block;
+    }
+
+    @Override
+    public synchronized void truncate(int size) {
+        if (size >= this.log.size()) {
+            return;
+        }
+        for (int i = size; i < this.log.size(); i++) {
+            this.heights.remove(this.log.hashAt(i));
+        }
+        try {
+            this.log.truncate(size);
+            this.tip = size == 0 ? null : decode(size - 1);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            System.exit(-1);
+        }
+    }
+
+    @Override
+    public List<Block> asList() {
+        return this.view;
+    }
+}
@@ -0,0 +1,150 @@
+import lib.Block;
+import lib.BlockCodec;
+import lib.Hash256;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ChainStore Decorator that Maintains the Encoded Chain Payload <lib.BlockCodec> alongside the Blocks
+ * The Buffer is Filled Lazily: a Request Encodes only the Blocks Appended since the Last One onto
+ * the End of a Growing Buffer, a Truncate Cuts the Buffer at the Recorded Offset. A Chain Restored from
+ * the Block Log is not Encoded (or Held on the Heap) until a Peer First Asks for it.
+ * payload() Hands out a Read-Only View of the Buffer itself, Bounded to the Current Length: Appends only Write
+ * past it, and after a Truncate the Buffer Moves to a Fresh Array before it is Written again,
+ * so the Bytes of a View never Change and Serving GET_BLOCKCHAIN_DATA Copies Nothing.
+ */
+public class SerializedChainStore implements ChainStore {
+
+    private final ChainStore store;
+
+    private byte[] buffer; // Chain Header + Entries, Grows by Doubling
+
+    private int length; // Bytes in Use
+
+    private int[] offsets; // Start of each Height's Entry
+
+    private int encoded; // Heights in the Buffer, the Blocks above are Encoded on the Next Request
+
+    private int shared; // Bytes of the Current Array Handed out in Views, must not be Overwritten
+
+    /**
+     * Constructor, the Blocks the Store Already Holds (e.g. Restored from a Block Log) are Encoded on First Use
+     * @param store the store holding the blocks
+     */
+    public SerializedChainStore(ChainStore store) {
+        this.store = store;
+        this.buffer = new byte[4096];
+        this.offsets = new int[64];
+        this.length = BlockCodec.writeChainHeader(this.buffer);
+    }
+
+    /**
+     * The Encoded Chain, a Read-Only View Shared with the Store
+     */
+    public synchronized ByteBuffer payload() {
+        encodePending();
+        this.shared = Math.max(this.shared, this.length);
+        return ByteBuffer.wrap(this.buffer, 0, this.length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Up to 'count' Encoded Blocks from a Height, as a Chain Suffix Payload (One Page of a Paged Download)
+     * Fewer Blocks if the Chain Ends first
+     */
+    public synchronized byte[] rangePayload(int fromHeight, int count) {
+        encodePending();
+        int size = this.store.size();
+        fromHeight = Math.max(0, Math.min(fromHeight, size));
+        int toHeight = fromHeight + Math.min(Math.max(0, count), size - fromHeight);
+        int start = fromHeight == size ? this.length : this.offsets[fromHeight];
+        int end = toHeight == size ? this.length : this.offsets[toHeight];
+        byte[] ret = new byte[BlockCodec.SUFFIX_HEADER + end - start];
+        BlockCodec.writeSuffixHeader(ret, fromHeight, toHeight - fromHeight);
+        System.arraycopy(this.buffer, start, ret, BlockCodec.SUFFIX_HEADER, end - start);
+        return ret;
+    }
+
+    /**
+     * Bring the Buffer up to the Tip
+     */
+    private void encodePending() {
+        while (this.encoded < this.store.size()) {
+            encode(this.encoded, this.store.get(this.encoded));
+            this.encoded++;
+        }
+    }
+
+    private void encode(int height, Block block) {
+        byte[] entry = BlockCodec.encodeChainEntry(block);
+        if (this.length + entry.length > this.buffer.length) {
+            /* Views Keep the Old Array */
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(2 * this.buffer.length, this.length + entry.length));
+            this.shared = 0;
+        }
+        if (height >= this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+        }
+        this.offsets[height] = this.length;
+        System.arraycopy(entry, 0, this.buffer, this.length, entry.length);
+        this.length += entry.length;
+    }
+
+    @Override
+    public synchronized void append(Block block) {
+        this.store.append(block);
+    }
+
+    @Override
+    public synchronized void truncate(int size) {
+        if (size >= this.store.size()) {
+            return;
+        }
+        this.store.truncate(size);
+        if (size < this.encoded) {
+            this.encoded = size;
+            this.length = this.offsets[size];
+            /* The Next Appends would Overwrite Bytes a View still Reads */
+            if (this.length < this.shared) {
+                this.buffer = Arrays.copyOf(this.buffer, this.buffer.length);
+                this.shared = 0;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.store.size();
+    }
+
+    @Override
+    public Block get(int height) {
+        return this.store.get(height);
+    }
+
+    @Override
+    public Block getByHash(Hash256 hash) {
+        return this.store.getByHash(hash);
+    }
+
+    @Override
+    public int heightOf(Hash256 hash) {
+        return this.store.heightOf(hash);
+    }
+
+    @Override
+    public boolean contains(Hash256 hash) {
+        return this.store.contains(hash);
+    }
+
+    @Override
+    public Block getTip() {
+        return this.store.getTip();
+    }
+
+    @Override
+    public List<Block> asList() {
+        return this.store.asList();
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lib.Block;
+import lib.Hash256;
+
+/**
+ * Bounded Cache of Blocks whose Hash was Recomputed and Found Correct
+ * The Same Block Reaches a Node by Broadcast and then again in every Chain Download;
+ * a Block Found here (Same Hash, Same Content) Skips the SHA-256.
+ * Lookups are Lock-Free (Hash Map + Reference Bit); Inserts Evict by CLOCK, Sweeping the Slots
+ * and Giving every Recently Looked-up Block a Second Chance.
+ */
+public class VerifiedBlockCache {
+
+    /* Blocks Kept, -Dblockchain.verify.cacheSize=N */
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("blockchain.verify.cacheSize", 4096);
+
+    private final Block[] slots;
+
+    private final boolean[] referenced; // Set by Lookups, Cleared by the Clock Hand
+
+    private final ConcurrentHashMap<Hash256, Integer> index;
+
+    private int hand; // Next Slot the Clock Hand Looks at
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param capacity maximum number of blocks kept
+     */
+    public VerifiedBlockCache(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.slots = new Block[capacity];
+        this.referenced = new boolean[capacity];
+        this.index = new ConcurrentHashMap<Hash256, Integer>(2 * capacity);
+    }
+
+    /**
+     * Whether this Exact Block was Verified before
+     * The Content is Compared too: a Block Claiming a Cached Hash over Other Fields is not Trusted
+     */
+    public boolean isVerified(Block block) {
+        Integer slot = this.index.get(block.getHashKey());
+        if (slot != null) {
+            Block cached = this.slots[slot];
+            if (cached != null && cached.getHashKey().equals(block.getHashKey()) && cached.sameContent(block)) {
+                this.referenced[slot] = true;
+                this.hits.incrementAndGet();
+                return true;
+            }
+        }
+        this.misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Record a Block whose Hash was just Recomputed and Found Correct
+     */
+    public synchronized void add(Block block) {
+        if (this.index.containsKey(block.getHashKey())) {
+            return;
+        }
+        /* Clock: Skip (and Clear) Referenced Slots, Evict the First Unreferenced One */
+        while (this.referenced[this.hand]) {
+            this.referenced[this.hand] = false;
+            this.hand = (this.hand + 1) % this.slots.length;
+        }
+        Block evicted = this.slots[this.hand];
+        if (evicted != null) {
+            this.index.remove(evicted.getHashKey());
+        }
+        this.slots[this.hand] = block;
+        this.index.put(block.getHashKey(), this.hand);
+        this.hand = (this.hand + 1) % this.slots.length;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Share of Lookups that Skipped the Hash, 0 before the First Lookup
+     */
+    public double hitRate() {
+        long hits = this.hits.get();
+        long total = hits + this.misses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d Hits / %d Lookups (%.1f%%)", getHits(), getHits() + getMisses(), 100 * hitRate());
+    }
+}
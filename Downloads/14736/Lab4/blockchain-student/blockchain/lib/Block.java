@@ -2,6 +2,7 @@ package lib;
 
 /**
  * Block Class, the element to compose a Blockchain.
+ * Hashes are Kept as Compact Hash256 Keys, Hex Strings are only Produced at the API Boundary.
  */
 public class Block {
 
@@ -9,9 +10,9 @@ public class Block {
 
     public final static String BLOCK_SEPARATOR = ";"; // To Separate Blocks
 
-    private String hash;
+    private Hash256 hash;
 
-    private String previousHash;
+    private Hash256 previousHash; // Shares the Parent's Instance once Linked onto a Chain
 
     private String data;
 
@@ -19,6 +20,8 @@ public class Block {
 
     private int difficulty;
 
+    private long extraNonce; // Miner's Own Part of the Search Space: NodeID (High 32 Bits) + Worker (Low 32 Bits)
+
     private long nonce;
 
     private int index; //Location in the Block Chain, Convenient for Adding New Block(Validation)
@@ -27,6 +30,11 @@ public class Block {
 
     public Block(String hash, String previousHash, String data,
                  long timestamp) {
+        this(Hash256.of(hash), Hash256.of(previousHash), data, timestamp);
+    }
+
+    public Block(Hash256 hash, Hash256 previousHash, String data,
+                 long timestamp) {
         this.hash = hash;
         this.previousHash = previousHash;
         this.data = data;
@@ -41,6 +49,14 @@ public class Block {
         this.nonce = nonce;
     }
 
+    public long getExtraNonce() {
+        return extraNonce;
+    }
+
+    public void setExtraNonce(long extraNonce) {
+        this.extraNonce = extraNonce;
+    }
+
     public int getDifficulty() {
         return difficulty;
     }
@@ -50,17 +66,35 @@ public class Block {
     }
 
     public String getHash() {
-        return hash;
+        return hash.toHex();
     }
 
     public void setHash(String hash) {
-        this.hash = hash;
+        this.hash = Hash256.of(hash);
+    }
+
+    public Hash256 getHashKey() {
+        return hash;
     }
 
     public String getPreviousHash() {
+        return previousHash.toHex();
+    }
+
+    public Hash256 getPreviousHashKey() {
         return previousHash;
     }
 
+    /**
+     * Drop this Block's own Copy of the Parent Hash in favor of the Parent's Instance
+     * @param parent the block this one is appended to
+     */
+    public void linkTo(Block parent) {
+        if (parent.hash.equals(this.previousHash)) {
+            this.previousHash = parent.hash;
+        }
+    }
+
     public String getData() {
         return data;
     }
@@ -78,12 +112,12 @@ public class Block {
     }
 
     /* Serialization for convert between Block Object and String Representation
-     * index+","+hash+","+prev_hash+","+"data"+","+timestamp+","+difficulty+","+nonce
+     * hash+","+index+","+prev_hash+","+"data"+","+timestamp+","+difficulty+","+extra_nonce+","+nonce
      * */
 
     public  static Block fromString(String s){
         String[] info = s.split(SEPARATOR);
-        if(info == null || info.length != 7){
+        if(info == null || info.length != 8){
             System.err.println("Wrong Block String: "+s);
         }
 
@@ -93,21 +127,38 @@ public class Block {
         String data_ = info[3];
         Long tstmp = Long.parseLong(info[4]);
         int difficulty = Integer.parseInt(info[5]);
-        Long nonce = Long.parseLong(info[6]);
+        Long extra_nonce = Long.parseLong(info[6]);
+        Long nonce = Long.parseLong(info[7]);
         /* Create the Block Object */
         Block ret = new Block(hash, prev_hash, data_, tstmp);
         ret.setIndex(index);
         ret.setDifficulty(difficulty);
+        ret.setExtraNonce(extra_nonce);
         ret.setNonce(nonce);
 
         return ret;
     }
 
     public  String toString(){
-        String ret = this.hash+SEPARATOR+this.index+SEPARATOR+this.previousHash+SEPARATOR
-                +this.data+SEPARATOR+this.timestamp+SEPARATOR+this.difficulty+SEPARATOR+this.nonce;
+        return this.hash.toHex()+contentString();
+    }
 
-        return ret;
+    /**
+     * Whether Two Blocks Carry the Same Content (everything contentString() Covers), without Building the String
+     */
+    public boolean sameContent(Block other){
+        return this.index == other.index && this.timestamp == other.timestamp
+                && this.difficulty == other.difficulty && this.extraNonce == other.extraNonce
+                && this.nonce == other.nonce && this.previousHash.equals(other.previousHash)
+                && this.data.equals(other.data);
+    }
+
+    /**
+     * Everything after the Hash, the Exact String the Hash is Computed over
+     */
+    public String contentString(){
+        return SEPARATOR+this.index+SEPARATOR+this.previousHash.toHex()+SEPARATOR+this.data+SEPARATOR+this.timestamp
+                +SEPARATOR+this.difficulty+SEPARATOR+this.extraNonce+SEPARATOR+this.nonce;
     }
 
 }
@@ -0,0 +1,351 @@
+package lib;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned Binary Wire Format of Blocks and Chains, Replacing Block.toString/fromString on the Wire.
+ * The Only Format on the Wire: Baseline String-Format Peers are not Supported, their Block Hashes
+ * do not Cover the Extra Nonce, so neither Side could Validate the Other's Blocks anyway.
+ *
+ * Payload:  [byte MAGIC][byte VERSION][byte kind] then
+ *     KIND_BLOCK: one block
+ *     KIND_CHAIN: blocks up to the end of the payload, genesis first
+ *                 (no count, so a chain buffer that only grows can be sent as it stands)
+ *     KIND_SUFFIX: [int32 start height][int32 count] and count blocks, from the start height up
+ *                  (also a batch of consecutive mined blocks, and its reply: count vote bytes, 1 for agree)
+ *     KIND_LOCATOR: [int32 count] and count 32-byte hashes, tip first
+ *     KIND_ANCESTOR: [int32 ancestor height][int32 chain length][int64 tip timestamp]
+ *     KIND_RANGE: [int32 start height][int32 count], a page request answered by a KIND_SUFFIX payload
+ *     KIND_HEADER: one block without its data (data length 0), announced before the body is fetched
+ *     KIND_HASH: [32 bytes hash], asks for the body of an announced block
+ * Block:    [32 bytes hash][32 bytes previous hash][varint index][zigzag varint timestamp]
+ *           [varint difficulty][zigzag varint extra nonce][zigzag varint nonce][varint length][data bytes]
+ *
+ * MAGIC is not a Character of the String Format (hex digits, ',' and ';'), so a String Payload
+ * is Rejected by its First Byte. Data is Length-Prefixed, it may Contain ',' and ';'.
+ */
+public final class BlockCodec {
+
+    public static final byte MAGIC = (byte) 0xB1;
+
+    public static final byte VERSION = 1;
+
+    public static final byte KIND_BLOCK = 1;
+
+    public static final byte KIND_CHAIN = 2;
+
+    public static final byte KIND_SUFFIX = 3;
+
+    public static final byte KIND_LOCATOR = 4;
+
+    public static final byte KIND_ANCESTOR = 5;
+
+    public static final byte KIND_RANGE = 7;
+
+    public static final byte KIND_HEADER = 8;
+
+    public static final byte KIND_HASH = 9;
+
+    private static final int HEADER = 3;
+
+    public static final int CHAIN_HEADER = HEADER;
+
+    public static final int SUFFIX_HEADER = HEADER + 8;
+
+    private static final Charset DATA_CHARSET = StandardCharsets.UTF_8;
+
+    private BlockCodec() {}
+
+    /**
+     * Whether a Payload is in this Binary Format (any Version)
+     */
+    public static boolean isBinary(byte[] payload) {
+        return payload != null && payload.length >= HEADER && payload[0] == MAGIC;
+    }
+
+    public static byte[] encodeBlock(Block block) {
+        byte[] data = block.getData().getBytes(DATA_CHARSET);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + encodedSize(block, data));
+        buf.put(MAGIC).put(VERSION).put(KIND_BLOCK);
+        writeBlock(buf, block, data);
+        return buf.array();
+    }
+
+    public static byte[] encodeChain(List<Block> chain) {
+        byte[][] data = new byte[chain.size()][];
+        int size = CHAIN_HEADER;
+        for (int i = 0; i < data.length; i++) {
+            data[i] = chain.get(i).getData().getBytes(DATA_CHARSET);
+            size += encodedSize(chain.get(i), data[i]);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(MAGIC).put(VERSION).put(KIND_CHAIN);
+        for (int i = 0; i < data.length; i++) {
+            writeBlock(buf, chain.get(i), data[i]);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Bytes of One Block inside a Chain Payload (no Header), for Building a Payload Incrementally
+     */
+    public static byte[] encodeChainEntry(Block block) {
+        byte[] data = block.getData().getBytes(DATA_CHARSET);
+        ByteBuffer buf = ByteBuffer.allocate(encodedSize(block, data));
+        writeBlock(buf, block, data);
+        return buf.array();
+    }
+
+    /**
+     * Write a Chain Payload Header at the Start of a Buffer
+     * @return the header length, chain entries follow right after it
+     */
+    public static int writeChainHeader(byte[] dst) {
+        ByteBuffer.wrap(dst).put(MAGIC).put(VERSION).put(KIND_CHAIN);
+        return CHAIN_HEADER;
+    }
+
+    /**
+     * Write a Chain Suffix Payload Header at the Start of a Buffer
+     * @return the header length, chain entries follow right after it
+     */
+    public static int writeSuffixHeader(byte[] dst, int startHeight, int count) {
+        ByteBuffer.wrap(dst).put(MAGIC).put(VERSION).put(KIND_SUFFIX).putInt(startHeight).putInt(count);
+        return SUFFIX_HEADER;
+    }
+
+    /**
+     * Consecutive Blocks in One Message, as a Suffix from the First Block's Height
+     */
+    public static byte[] encodeBatch(List<Block> blocks) {
+        byte[][] entries = new byte[blocks.size()][];
+        int size = SUFFIX_HEADER;
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = encodeChainEntry(blocks.get(i));
+            size += entries[i].length;
+        }
+        byte[] ret = new byte[size];
+        int position = writeSuffixHeader(ret, blocks.get(0).getIndex(), entries.length);
+        for (byte[] entry : entries) {
+            System.arraycopy(entry, 0, ret, position, entry.length);
+            position += entry.length;
+        }
+        return ret;
+    }
+
+    /**
+     * Block Locator: Tip Hash plus Exponentially Spaced Ancestor Hashes, Tip First
+     */
+    public static byte[] encodeLocator(List<Hash256> locator) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + 4 + locator.size() * Sha256.DIGEST_LENGTH);
+        buf.put(MAGIC).put(VERSION).put(KIND_LOCATOR).putInt(locator.size());
+        for (Hash256 hash : locator) {
+            hash.write(buf);
+        }
+        return buf.array();
+    }
+
+    public static List<Hash256> decodeLocator(byte[] payload) {
+        ByteBuffer buf = openPayload(payload, KIND_LOCATOR);
+        int count = buf.getInt();
+        if (count < 0 || count > buf.remaining() / Sha256.DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Block Locator of " + count + " Hashes beyond the Payload");
+        }
+        List<Hash256> ret = new ArrayList<Hash256>(count);
+        for (int i = 0; i < count; i++) {
+            ret.add(Hash256.read(buf));
+        }
+        return ret;
+    }
+
+    /**
+     * Reply to a Locator: the Common Ancestor Height (-1 if None) and a Summary of the Replying Node's Tip
+     */
+    public static byte[] encodeAncestor(int ancestorHeight, int chainLength, long tipTimestamp) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + 16);
+        buf.put(MAGIC).put(VERSION).put(KIND_ANCESTOR).putInt(ancestorHeight).putInt(chainLength).putLong(tipTimestamp);
+        return buf.array();
+    }
+
+    /**
+     * @return {ancestor height, chain length, tip timestamp}
+     */
+    public static long[] decodeAncestor(byte[] payload) {
+        ByteBuffer buf = openPayload(payload, KIND_ANCESTOR);
+        return new long[]{buf.getInt(), buf.getInt(), buf.getLong()};
+    }
+
+    public static byte[] encodeRange(int startHeight, int count) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + 8);
+        buf.put(MAGIC).put(VERSION).put(KIND_RANGE).putInt(startHeight).putInt(count);
+        return buf.array();
+    }
+
+    /**
+     * @return {start height, count}
+     */
+    public static int[] decodeRange(byte[] payload) {
+        ByteBuffer buf = openPayload(payload, KIND_RANGE);
+        return new int[]{buf.getInt(), buf.getInt()};
+    }
+
+    /**
+     * Header of a Block Payload: the Same Fields without the Data, Read without Decoding the Data
+     */
+    public static byte[] headerOf(byte[] blockPayload) {
+        ByteBuffer buf = openPayload(blockPayload, KIND_BLOCK);
+        Block header = readBlockFields(buf, "");
+        ByteBuffer out = ByteBuffer.allocate(HEADER + encodedSize(header, new byte[0]));
+        out.put(MAGIC).put(VERSION).put(KIND_HEADER);
+        writeBlock(out, header, new byte[0]);
+        return out.array();
+    }
+
+    /**
+     * @return the announced block, with empty data
+     */
+    public static Block decodeHeader(byte[] payload) {
+        ByteBuffer buf = openPayload(payload, KIND_HEADER);
+        return readBlockFields(buf, "");
+    }
+
+    public static byte[] encodeHash(Hash256 hash) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + Sha256.DIGEST_LENGTH);
+        buf.put(MAGIC).put(VERSION).put(KIND_HASH);
+        hash.write(buf);
+        return buf.array();
+    }
+
+    public static Hash256 decodeHash(byte[] payload) {
+        return Hash256.read(openPayload(payload, KIND_HASH));
+    }
+
+    public static Block decodeBlock(byte[] payload) {
+        ByteBuffer buf = openPayload(payload, KIND_BLOCK);
+        return readBlock(buf);
+    }
+
+    public static List<Block> decodeChain(byte[] payload) {
+        ByteBuffer buf = openPayload(payload, KIND_CHAIN);
+        List<Block> ret = new ArrayList<Block>();
+        while (buf.hasRemaining()) {
+            ret.add(readBlock(buf));
+        }
+        return ret;
+    }
+
+    /**
+     * Helper Functions
+     */
+
+    private static ByteBuffer openPayload(byte[] payload, byte kind) {
+        if (!isBinary(payload)) {
+            throw new IllegalArgumentException("Not a Binary Block Codec Payload");
+        }
+        if (payload[1] != VERSION) {
+            throw new IllegalArgumentException("Unsupported Block Codec Version " + payload[1]);
+        }
+        if (payload[2] != kind) {
+            throw new IllegalArgumentException("Expected Payload Kind " + kind + ", got " + payload[2]);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        buf.position(HEADER);
+        return buf;
+    }
+
+    private static int encodedSize(Block block, byte[] data) {
+        return 2 * Sha256.DIGEST_LENGTH
+                + varintSize(block.getIndex() & 0xffffffffL)
+                + varintSize(zigzag(block.getTimestamp()))
+                + varintSize(block.getDifficulty() & 0xffffffffL)
+                + varintSize(zigzag(block.getExtraNonce()))
+                + varintSize(zigzag(block.getNonce()))
+                + varintSize(data.length)
+                + data.length;
+    }
+
+    static void writeBlock(ByteBuffer buf, Block block, byte[] data) {
+        block.getHashKey().write(buf);
+        block.getPreviousHashKey().write(buf);
+        writeVarint(buf, block.getIndex() & 0xffffffffL);
+        writeVarint(buf, zigzag(block.getTimestamp()));
+        writeVarint(buf, block.getDifficulty() & 0xffffffffL);
+        writeVarint(buf, zigzag(block.getExtraNonce()));
+        writeVarint(buf, zigzag(block.getNonce()));
+        writeVarint(buf, data.length);
+        buf.put(data);
+    }
+
+    static Block readBlock(ByteBuffer buf) {
+        return readBlockFields(buf, null);
+    }
+
+    /**
+     * @param data the data to give the block instead of the encoded one (which is skipped), null to decode it
+     */
+    private static Block readBlockFields(ByteBuffer buf, String data) {
+        Hash256 hash = Hash256.read(buf);
+        Hash256 prev_hash = Hash256.read(buf);
+        int index = (int) readVarint(buf);
+        long timestamp = unzigzag(readVarint(buf));
+        int difficulty = (int) readVarint(buf);
+        long extra_nonce = unzigzag(readVarint(buf));
+        long nonce = unzigzag(readVarint(buf));
+        int length = (int) readVarint(buf);
+        if (length < 0 || length > buf.remaining()) {
+            throw new IllegalArgumentException("Block Data Length " + length + " beyond the Payload");
+        }
+        if (data == null) {
+            data = new String(buf.array(), buf.arrayOffset() + buf.position(), length, DATA_CHARSET);
+        }
+        buf.position(buf.position() + length);
+
+        Block ret = new Block(hash, prev_hash, data, timestamp);
+        ret.setIndex(index);
+        ret.setDifficulty(difficulty);
+        ret.setExtraNonce(extra_nonce);
+        ret.setNonce(nonce);
+        return ret;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int varintSize(long v) {
+        int n = 1;
+        while ((v & ~0x7fL) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    private static void writeVarint(ByteBuffer buf, long v) {
+        while ((v & ~0x7fL) != 0) {
+            buf.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    private static long readVarint(ByteBuffer buf) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            v |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Malformed Varint in Block Payload");
+    }
+}
@@ -0,0 +1,345 @@
+package lib;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Durable Append-Only Log of Block Records, One Record per Height.
+ *
+ * Records go into Memory-Mapped Segment Files (blocks-NNNNN.seg):
+ *     [int length][int crc32][length bytes]
+ * The Index File (blocks.idx) is Memory-Mapped as well:
+ *     Header: [int magic][int version][long committed]
+ *     Entry per Height: [32 bytes hash][long position + 1] (position = segment * SEGMENT_SIZE + offset)
+ *
+ * Fsync is Batched (Group Commit): sync() Forces the Segments, then the Index Entries,
+ * and only then Raises 'committed' in the Header. On Restart every Entry below 'committed'
+ * is Trusted, later Entries are Kept only while their Record's CRC Checks out.
+ * Opening the Log Maps the Files and Finds the Tip by Binary Search, nothing is Replayed.
+ */
+public class BlockLog {
+
+    public static final int SEGMENT_SIZE = 16 << 20;
+
+    private static final int RECORD_HEADER = 8;
+
+    private static final int MAGIC = 0x424c4f47; // "BLOG"
+
+    private static final int VERSION = 1;
+
+    private static final int INDEX_HEADER = 64;
+
+    private static final int ENTRY_SIZE = Sha256.DIGEST_LENGTH + 8;
+
+    /* Index Entries per Mapped Window */
+    private static final int ENTRIES_PER_WINDOW = 1 << 16;
+
+    private final File dir;
+
+    private final FileChannel indexChannel;
+
+    private final MappedByteBuffer indexHeader;
+
+    private final List<MappedByteBuffer> indexWindows = new ArrayList<MappedByteBuffer>();
+
+    private final List<FileChannel> segmentChannels = new ArrayList<FileChannel>();
+
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+    private int size; // Number of Records
+
+    private long writePosition; // Where the Next Record Goes
+
+    private int committed; // Records Known to be on Disk
+
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Open (or Create) the Log in a Directory
+     * @param dir directory holding the segment and index files
+     */
+    public BlockLog(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot Create Block Log Directory " + dir);
+        }
+        this.dir = dir;
+        this.indexChannel = new RandomAccessFile(new File(dir, "blocks.idx"), "rw").getChannel();
+        this.indexHeader = this.indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER);
+
+        if (this.indexHeader.getInt(0) == 0) {
+            this.indexHeader.putInt(0, MAGIC);
+            this.indexHeader.putInt(4, VERSION);
+            this.indexHeader.putLong(8, 0);
+            this.indexHeader.force();
+        }
+        else if (this.indexHeader.getInt(0) != MAGIC || this.indexHeader.getInt(4) != VERSION) {
+            throw new IOException("Not a Block Log Index: " + new File(dir, "blocks.idx"));
+        }
+
+        recover();
+    }
+
+    /**
+     * Find the Tip: Trust the Committed Entries, then Accept Later Entries while their CRC Matches
+     */
+    private void recover() throws IOException {
+        int committed = (int) this.indexHeader.getLong(8);
+        long capacity = (this.indexChannel.size() - INDEX_HEADER) / ENTRY_SIZE;
+
+        /* Entries are Filled Contiguously from Height 0: Binary Search for the First Empty One */
+        long lo = committed, hi = capacity;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (positionAt((int) mid) >= 0) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+
+        int count = committed;
+        while (count < lo && readChecked(count) != null) {
+            count++;
+        }
+        /* Drop Torn Entries beyond the Last Good Record */
+        for (int i = count; i < lo; i++) {
+            clearEntry(i);
+        }
+
+        if (count < lo) {
+            forceIndex();
+        }
+
+        this.size = count;
+        this.committed = committed;
+        this.writePosition = count == 0 ? 0 : endOf(count - 1);
+        /* Records that Survived the Crash Intact are Committed now */
+        sync();
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Hash Stored with the Record at a Height
+     */
+    public synchronized Hash256 hashAt(int height) {
+        checkHeight(height);
+        MappedByteBuffer w = window(height);
+        byte[] hash = new byte[Sha256.DIGEST_LENGTH];
+        int off = entryOffset(height);
+        for (int i = 0; i < hash.length; i++) {
+            hash[i] = w.get(off + i);
+        }
+        return Hash256.fromBytes(hash);
+    }
+
+    /**
+     * Record Bytes at a Height
+     */
+    public synchronized byte[] read(int height) throws IOException {
+        checkHeight(height);
+        byte[] record = readChecked(height);
+        if (record == null) {
+            throw new IOException("Corrupted Block Record at Height " + height + " in " + this.dir);
+        }
+        return record;
+    }
+
+    /**
+     * Append a Record on Top, Durable after the next sync()
+     */
+    public synchronized void append(Hash256 hash, byte[] record) throws IOException {
+        if (RECORD_HEADER + record.length > SEGMENT_SIZE) {
+            throw new IOException("Block Record of " + record.length + " Bytes does not Fit a Segment");
+        }
+        int segment = (int) (this.writePosition / SEGMENT_SIZE);
+        int offset = (int) (this.writePosition % SEGMENT_SIZE);
+        /* Records never Straddle Two Segments */
+        if (offset + RECORD_HEADER + record.length > SEGMENT_SIZE) {
+            segment++;
+            offset = 0;
+        }
+
+        MappedByteBuffer seg = segment(segment);
+        seg.putInt(offset, record.length);
+        seg.putInt(offset + 4, checksum(record));
+        for (int i = 0; i < record.length; i++) {
+            seg.put(offset + RECORD_HEADER + i, record[i]);
+        }
+
+        long position = (long) segment * SEGMENT_SIZE + offset;
+        MappedByteBuffer w = window(this.size);
+        int off = entryOffset(this.size);
+        byte[] h = hash.toBytes();
+        for (int i = 0; i < h.length; i++) {
+            w.put(off + i, h[i]);
+        }
+        w.putLong(off + Sha256.DIGEST_LENGTH, position + 1);
+
+        this.size++;
+        this.writePosition = position + RECORD_HEADER + record.length;
+    }
+
+    /**
+     * Drop every Record at Height >= newSize (e.g. when Switching to a Peer's Fork)
+     */
+    public synchronized void truncate(int newSize) throws IOException {
+        if (newSize >= this.size) {
+            return;
+        }
+        for (int i = newSize; i < this.size; i++) {
+            clearEntry(i);
+        }
+        this.size = newSize;
+        this.writePosition = newSize == 0 ? 0 : endOf(newSize - 1);
+        /* The Header must never Claim Cleared Entries */
+        if (this.committed > newSize) {
+            this.committed = newSize;
+            this.indexHeader.putLong(8, newSize);
+            forceIndex();
+        }
+    }
+
+    /**
+     * Group Commit: Segments first, then Index Entries, then the Committed Count
+     */
+    public synchronized void sync() {
+        if (this.committed == this.size) {
+            return;
+        }
+        for (MappedByteBuffer seg : this.segments) {
+            seg.force();
+        }
+        forceIndex();
+        this.indexHeader.putLong(8, this.size);
+        this.indexHeader.force();
+        this.committed = this.size;
+    }
+
+    public synchronized void close() throws IOException {
+        sync();
+        for (FileChannel ch : this.segmentChannels) {
+            ch.close();
+        }
+        this.indexChannel.close();
+    }
+
+    /**
+     * Helper Functions
+     */
+
+    private void forceIndex() {
+        for (MappedByteBuffer w : this.indexWindows) {
+            if (w != null) {
+                w.force();
+            }
+        }
+    }
+
+    private void checkHeight(int height) {
+        if (height < 0 || height >= this.size) {
+            throw new IndexOutOfBoundsException("Height " + height + " of " + this.size);
+        }
+    }
+
+    private int checksum(byte[] record) {
+        this.crc.reset();
+        this.crc.update(record, 0, record.length);
+        return (int) this.crc.getValue();
+    }
+
+    /**
+     * Record at a Height, null if the Entry is Empty or the Record Fails its CRC
+     */
+    private byte[] readChecked(int height) throws IOException {
+        long position = positionAt(height);
+        if (position < 0) {
+            return null;
+        }
+        int segment = (int) (position / SEGMENT_SIZE);
+        int offset = (int) (position % SEGMENT_SIZE);
+        if (!new File(this.dir, segmentName(segment)).exists()) {
+            return null;
+        }
+        MappedByteBuffer seg = segment(segment);
+        int length = seg.getInt(offset);
+        if (length < 0 || offset + RECORD_HEADER + length > SEGMENT_SIZE) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        for (int i = 0; i < length; i++) {
+            record[i] = seg.get(offset + RECORD_HEADER + i);
+        }
+        return checksum(record) == seg.getInt(offset + 4) ? record : null;
+    }
+
+    private long endOf(int height) throws IOException {
+        long position = positionAt(height);
+        int segment = (int) (position / SEGMENT_SIZE);
+        int offset = (int) (position % SEGMENT_SIZE);
+        return position + RECORD_HEADER + segment(segment).getInt(offset);
+    }
+
+    /* Record Position of an Entry, -1 if Empty */
+    private long positionAt(int height) throws IOException {
+        if (INDEX_HEADER + (long) (height + 1) * ENTRY_SIZE > this.indexChannel.size()) {
+            return -1;
+        }
+        return window(height).getLong(entryOffset(height) + Sha256.DIGEST_LENGTH) - 1;
+    }
+
+    private void clearEntry(int height) {
+        MappedByteBuffer w = window(height);
+        int off = entryOffset(height);
+        for (int i = 0; i < ENTRY_SIZE; i++) {
+            w.put(off + i, (byte) 0);
+        }
+    }
+
+    private static int entryOffset(int height) {
+        return (height % ENTRIES_PER_WINDOW) * ENTRY_SIZE;
+    }
+
+    /* Mapping a Window beyond the End Grows the Index File */
+    private MappedByteBuffer window(int height) {
+        int k = height / ENTRIES_PER_WINDOW;
+        while (this.indexWindows.size() <= k) {
+            this.indexWindows.add(null);
+        }
+        MappedByteBuffer w = this.indexWindows.get(k);
+        if (w == null) {
+            try {
+                w = this.indexChannel.map(FileChannel.MapMode.READ_WRITE,
+                        INDEX_HEADER + (long) k * ENTRIES_PER_WINDOW * ENTRY_SIZE,
+                        (long) ENTRIES_PER_WINDOW * ENTRY_SIZE);
+            } catch (IOException ioe) {
+                throw new IllegalStateException("Cannot Map Block Log Index Window " + k, ioe);
+            }
+            this.indexWindows.set(k, w);
+        }
+        return w;
+    }
+
+    private MappedByteBuffer segment(int segment) throws IOException {
+        while (this.segments.size() <= segment) {
+            int n = this.segments.size();
+            FileChannel ch = new RandomAccessFile(new File(this.dir, segmentName(n)), "rw").getChannel();
+            this.segmentChannels.add(ch);
+            this.segments.add(ch.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE));
+        }
+        return this.segments.get(segment);
+    }
+
+    private static String segmentName(int segment) {
+        return String.format("blocks-%05d.seg", segment);
+    }
+}
@@ -0,0 +1,59 @@
+package lib;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming Reader over a Chain or Chain Suffix Payload (Binary lib.BlockCodec)
+ * Blocks are Decoded One at a time straight from the Payload Bytes, nothing is Copied up Front,
+ * so a Caller can Validate or Compare from the First Block and Stop Early.
+ */
+public class ChainReader implements Iterator<Block> {
+
+    private final ByteBuffer buf;
+
+    private final int count; // Declared Block Count of a Suffix, -1 for a Whole Chain (Read to the End)
+
+    private final int startHeight; // Height of the First Block, 0 unless a Suffix
+
+    private int read; // Blocks Handed out so far
+
+    /**
+     * Constructor
+     * @param payload a chain payload as sent in reply to GET_BLOCKCHAIN_DATA
+     */
+    public ChainReader(byte[] payload) {
+        if (!BlockCodec.isBinary(payload) || payload[1] != BlockCodec.VERSION
+                || (payload[2] != BlockCodec.KIND_CHAIN && payload[2] != BlockCodec.KIND_SUFFIX)) {
+            throw new IllegalArgumentException("Not a Version " + BlockCodec.VERSION + " Chain Payload");
+        }
+        this.buf = ByteBuffer.wrap(payload);
+        this.buf.position(3);
+        boolean suffix = payload[2] == BlockCodec.KIND_SUFFIX;
+        this.startHeight = suffix ? this.buf.getInt() : 0;
+        this.count = suffix ? this.buf.getInt() : -1;
+    }
+
+    /**
+     * Height of the First Block in the Payload
+     * @return 0 for a whole chain, the start height for a suffix
+     */
+    public int startHeight() {
+        return this.startHeight;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.count < 0 ? this.buf.hasRemaining() : this.read < this.count;
+    }
+
+    @Override
+    public Block next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.read++;
+        return BlockCodec.readBlock(this.buf);
+    }
+}
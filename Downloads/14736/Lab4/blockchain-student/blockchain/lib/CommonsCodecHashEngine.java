@@ -0,0 +1,31 @@
+package lib;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * HashEngine on org.apache.commons.codec.digest.DigestUtils, the Original Hashing of the Project.
+ */
+public class CommonsCodecHashEngine implements HashEngine {
+
+    public static final String NAME = "commons";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] sha256(byte[] input) {
+        return DigestUtils.sha256(input);
+    }
+
+    @Override
+    public String sha256Hex(byte[] input) {
+        return DigestUtils.sha256Hex(input);
+    }
+
+    @Override
+    public NonceHasher newNonceHasher(byte[] prefix) {
+        return new DigestNonceHasher(prefix, DigestUtils.getSha256Digest());
+    }
+}
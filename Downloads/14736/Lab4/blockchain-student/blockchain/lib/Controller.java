@@ -5,6 +5,7 @@ import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -49,6 +50,7 @@ public class Controller extends UnicastRemoteObject implements MessageLayer{
         if(disconnectNodes.containsKey(id)) {
             nodes.put(id, disconnectNodes.get(id));
             disconnectNodes.remove(id);
+            publishPeers();
         }
     }
 
@@ -59,6 +61,7 @@ public class Controller extends UnicastRemoteObject implements MessageLayer{
 
         disconnectNodes.put(id, nodes.get(id));
         nodes.remove(id);
+        publishPeers();
     }
 
 
@@ -68,7 +71,44 @@ public class Controller extends UnicastRemoteObject implements MessageLayer{
      * @param remoteController the remoteControllerInterface of a raft peer.
      */
     public void register(int id, RemoteControllerIntf remoteController) {
-        this.nodes.putIfAbsent(id, new InnerNode (id, remoteController));
+        register(id, remoteController, 0);
+    }
+
+    /**
+     * register - Register a node that also accepts direct messages.
+     * @param id the node id
+     * @param remoteController the remoteControllerInterface of a raft peer.
+     * @param directPort the port of its direct transport, 0 for none.
+     */
+    public void register(int id, RemoteControllerIntf remoteController, int directPort) {
+        if (this.nodes.putIfAbsent(id, new InnerNode (id, remoteController, directPort)) == null && directPort > 0) {
+            publishPeers();
+        }
+    }
+
+    /**
+     * publishPeers - Push the connected nodes with a direct transport to every node that has one,
+     * so direct messages follow the same connect/disconnect faults as the relayed ones.
+     * Done before connect/disconnect returns.
+     */
+    private synchronized void publishPeers() {
+        Map<Integer, Integer> directPorts = new HashMap<>();
+        for (InnerNode n : nodes.values()) {
+            if (n.directPort > 0) {
+                directPorts.put(n.id, n.directPort);
+            }
+        }
+        Map<Integer, InnerNode> all = new HashMap<>(disconnectNodes);
+        all.putAll(nodes);
+        for (InnerNode n : all.values()) {
+            if (n.directPort > 0) {
+                try {
+                    n.rc.updatePeers(directPorts);
+                } catch (RemoteException e) {
+                    System.out.println("Cannot update the peers of node " + n.id + ": " + e);
+                }
+            }
+        }
     }
 
 
@@ -143,6 +183,54 @@ public class Controller extends UnicastRemoteObject implements MessageLayer{
         return null;
     }
 
+    /**
+     * This is the remote call for queueing a mining request without waiting.
+     *
+     * @param nodeID the node ID.
+     * @return the ticket of the request, -1 if rejected
+     */
+    public int submitMiningRequest( int nodeID, byte[] data ) {
+        try {
+            InnerNode n = nodes.get(nodeID);
+            if (n != null) {
+                return n.rc.submitMiningRequest(data);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit( -1 );
+        }
+
+        return -1;
+    }
+
+    public boolean isMiningDone( int nodeID, int ticket ) {
+        try {
+            InnerNode n = nodes.get(nodeID);
+            if (n != null) {
+                return n.rc.isMiningDone(ticket);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit( -1 );
+        }
+
+        return false;
+    }
+
+    public byte[] getMinedBlock( int nodeID, int ticket ) {
+        try {
+            InnerNode n = nodes.get(nodeID);
+            if (n != null) {
+                return n.rc.getMinedBlock(ticket);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit( -1 );
+        }
+
+        return null;
+    }
+
     public void broadcastNewBlock( int nodeID ) {
         byte[] data = null;
         try {
@@ -160,6 +248,19 @@ public class Controller extends UnicastRemoteObject implements MessageLayer{
         return;
     }
 
+    public void broadcastNewBlocks( int nodeID ) {
+        try {
+            InnerNode n = nodes.get(nodeID);
+            if (n != null) {
+                System.out.println("Transport send broadcastNewBlocks to peer:" + nodeID);
+                n.rc.broadcastNewBlocks();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit( -1 );
+        }
+    }
+
     public void downloadChain(int nodeID) {
         try {
             InnerNode n = nodes.get(nodeID);
@@ -183,9 +284,11 @@ public class Controller extends UnicastRemoteObject implements MessageLayer{
     private static class InnerNode {
         int id;
         RemoteControllerIntf rc;
-        InnerNode (int id, RemoteControllerIntf rc) {
+        int directPort;
+        InnerNode (int id, RemoteControllerIntf rc, int directPort) {
             this.id = id;
             this.rc = rc;
+            this.directPort = directPort;
         }
     }
 }
@@ -0,0 +1,488 @@
+package lib;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Direct Node-to-Node Transport over Non-Blocking Sockets on Localhost
+ * Messages Skip the Controller: a Request is One Binary Frame on a Connection to the Destination,
+ * its Reply comes back on the Same Connection, Matched by Request Id (Several Requests may be in Flight).
+ * One Selector Thread does all the Socket I/O of a Node; Requests are Handled on Worker Threads,
+ * since a Handler may itself Send Messages and Wait for their Replies.
+ * The Controller still Owns Registration and Fault Injection: it Pushes the Table of Connected Nodes
+ * and their Ports <updatePeers>, a Node not in the Table gets no Direct Messages.
+ *
+ * Frame: [int32 length of the rest][int64 request id][int8 kind][int32 src][int32 dest]
+ *        [int32 message type ordinal, -1 for none][int32 body length, -1 for none][body]
+ */
+public class DirectTransport {
+
+    private static final byte KIND_REQUEST = 0;
+
+    private static final byte KIND_REPLY = 1;
+
+    private static final byte KIND_NO_REPLY = 2; // Not Delivered, Sent back as a null Reply
+
+    private static final int FRAME_HEADER = 8 + 1 + 4 + 4 + 4 + 4;
+
+    private static final int READ_BUFFER = 64 * 1024;
+
+    /* How Long a Request Waits for its Reply, -Dblockchain.transport.timeoutMillis=MS */
+    public static final long REPLY_TIMEOUT_MILLIS = Long.getLong("blockchain.transport.timeoutMillis", 30000L);
+
+    /* Largest Frame Accepted from the Wire, a Peer Announcing More is Cut off, -Dblockchain.transport.maxFrameBytes=N */
+    public static final int MAX_FRAME_BYTES = Integer.getInteger("blockchain.transport.maxFrameBytes", 64 * 1024 * 1024);
+
+    private final int id;
+
+    private final MessageHandling handling;
+
+    private final Selector selector;
+
+    private final ServerSocketChannel server;
+
+    private final ExecutorService workers;
+
+    /* Connected Nodes and their Direct Ports, as Last Pushed by the Controller */
+    private volatile Map<Integer, Integer> peers = Collections.emptyMap();
+
+    /* Outgoing Connections by Destination */
+    private final Map<Integer, Connection> connections = new ConcurrentHashMap<Integer, Connection>();
+
+    /* Work for the Selector Thread: Registering New Channels, Turning Writes on */
+    private final Queue<Runnable> selector_Tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    private final AtomicLong next_Request = new AtomicLong();
+
+    /**
+     * Constructor, Starts Listening on an Ephemeral Localhost Port
+     * @param id id of the node
+     * @param handling the node the requests are delivered to
+     */
+    public DirectTransport(final int id, MessageHandling handling) throws IOException {
+        this.id = id;
+        this.handling = handling;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.server.configureBlocking(false);
+        this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+        final AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Node" + id + "-nio-worker-" + threads.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        Thread loop = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                selectLoop();
+            }
+        }, "Node" + id + "-nio-selector");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    public int getPort() {
+        return this.server.socket().getLocalPort();
+    }
+
+    /**
+     * New Table of Connected Nodes from the Controller
+     * A Node Missing from it is Disconnected: Requests still Waiting on it get a null Reply, as the Relay would give.
+     * Connections to a Node whose Port Changed are Dropped.
+     */
+    public void updatePeers(Map<Integer, Integer> directPorts) {
+        Map<Integer, Integer> table = Collections.unmodifiableMap(new HashMap<Integer, Integer>(directPorts));
+        this.peers = table;
+        for (Map.Entry<Integer, Connection> entry : this.connections.entrySet()) {
+            Integer port = table.get(entry.getKey());
+            if (port == null) {
+                entry.getValue().answerPending(null, null);
+            }
+            else if (port != entry.getValue().port) {
+                this.connections.remove(entry.getKey(), entry.getValue());
+                closeLater(entry.getValue(), new IOException("Node" + entry.getKey() + " Moved to Port " + port));
+            }
+        }
+    }
+
+    /**
+     * Whether a Message to this Node can Go Direct <Connected, with a Direct Port>
+     */
+    public boolean reaches(int dest) {
+        return this.peers.containsKey(dest);
+    }
+
+    /**
+     * Send a Request and Wait for its Reply
+     * @return the reply, null if the destination did not take the message or was disconnected meanwhile
+     * @throws RemoteException if the connection failed or broke before the reply, or no reply came in time
+     */
+    public Message send(Message message) throws RemoteException {
+        int dest = message.getDest();
+        /* To Itself: no Socket at all */
+        if (dest == this.id) {
+            return this.peers.containsKey(this.id) ? this.handling.deliverMessage(message) : null;
+        }
+        Integer port = this.peers.get(dest);
+        if (port == null) {
+            return null;
+        }
+        if (frameLength(message) > MAX_FRAME_BYTES) {
+            throw new RemoteException("Node" + this.id + " Message to Node" + dest + " Exceeds "
+                    + MAX_FRAME_BYTES + " Bytes");
+        }
+        Connection connection = connectionTo(dest, port);
+        long request = this.next_Request.incrementAndGet();
+        Pending pending = new Pending();
+        connection.pending.put(request, pending);
+        /* The Connection may have Failed before the Request was Registered */
+        if (connection.failure != null) {
+            connection.pending.remove(request);
+            throw new RemoteException("Node" + this.id + " Lost its Connection to Node" + dest, connection.failure);
+        }
+        connection.enqueue(encodeFrame(request, KIND_REQUEST, message));
+        try {
+            if (!pending.done.await(REPLY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                connection.pending.remove(request);
+                throw new RemoteException("Node" + this.id + " got no Reply from Node" + dest
+                        + " within " + REPLY_TIMEOUT_MILLIS + " ms");
+            }
+        } catch (InterruptedException ie) {
+            connection.pending.remove(request);
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Node" + this.id + " Interrupted while Waiting for Node" + dest, ie);
+        }
+        if (pending.failure != null) {
+            throw new RemoteException("Node" + this.id + " Lost its Connection to Node" + dest, pending.failure);
+        }
+        return pending.reply;
+    }
+
+    private Connection connectionTo(int dest, int port) throws RemoteException {
+        Connection connection = this.connections.get(dest);
+        if (connection != null && connection.failure == null) {
+            return connection;
+        }
+        synchronized (this.connections) {
+            connection = this.connections.get(dest);
+            if (connection != null && connection.failure == null) {
+                return connection;
+            }
+            try {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                channel.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                connection = new Connection(channel, port);
+                final Connection registered = connection;
+                runOnSelector(new Runnable() {
+                    @Override
+                    public void run() {
+                        registered.register(SelectionKey.OP_CONNECT);
+                    }
+                });
+            } catch (IOException ioe) {
+                throw new RemoteException("Node" + this.id + " Cannot Connect to Node" + dest, ioe);
+            }
+            this.connections.put(dest, connection);
+            return connection;
+        }
+    }
+
+    private void runOnSelector(Runnable task) {
+        this.selector_Tasks.add(task);
+        this.selector.wakeup();
+    }
+
+    private void closeLater(final Connection connection, final IOException cause) {
+        runOnSelector(new Runnable() {
+            @Override
+            public void run() {
+                connection.close(cause);
+            }
+        });
+    }
+
+    private void selectLoop() {
+        while (true) {
+            try {
+                this.selector.select();
+                Runnable task;
+                while ((task = this.selector_Tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        SocketChannel channel = this.server.accept();
+                        if (channel != null) {
+                            channel.configureBlocking(false);
+                            channel.socket().setTcpNoDelay(true);
+                            new Connection(channel, -1).register(SelectionKey.OP_READ);
+                        }
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isConnectable() && connection.channel.finishConnect()) {
+                            connection.interest(SelectionKey.OP_READ | (connection.outgoing.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                    } catch (IOException ioe) {
+                        connection.close(ioe);
+                    }
+                }
+            } catch (IOException ioe) {
+                System.err.println("Node" + this.id + " Direct Transport Selector Failed");
+                ioe.printStackTrace();
+                System.exit(-1);
+            }
+        }
+    }
+
+    /**
+     * A Request Arrived: Handled on a Worker, Answered on the Same Connection
+     */
+    private void dispatch(final Connection connection, final long request, final Message message) {
+        this.workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                /* Like the Controller Relay: Nothing is Delivered to a Disconnected Node */
+                if (message.getDest() != id || !peers.containsKey(id)) {
+                    connection.enqueue(encodeFrame(request, KIND_NO_REPLY, null));
+                    return;
+                }
+                Message reply = handling.deliverMessage(message);
+                if (reply != null && frameLength(reply) > MAX_FRAME_BYTES) {
+                    System.err.println("Node" + id + " Reply to Node" + message.getSrc() + " Exceeds "
+                            + MAX_FRAME_BYTES + " Bytes, Dropped");
+                    reply = null;
+                }
+                connection.enqueue(encodeFrame(request, reply == null ? KIND_NO_REPLY : KIND_REPLY, reply));
+            }
+        });
+    }
+
+    /**
+     * Frame Length without its Length Prefix
+     */
+    private static long frameLength(Message message) {
+        return FRAME_HEADER + (long) Math.max(0, message.getBodyLength());
+    }
+
+    static ByteBuffer encodeFrame(long request, byte kind, Message message) {
+        int body_length = message == null ? -1 : message.getBodyLength();
+        int length = FRAME_HEADER + Math.max(0, body_length);
+        ByteBuffer frame = ByteBuffer.allocate(4 + length);
+        frame.putInt(length);
+        frame.putLong(request);
+        frame.put(kind);
+        frame.putInt(message == null ? -1 : message.getSrc());
+        frame.putInt(message == null ? -1 : message.getDest());
+        frame.putInt(message == null || message.getType() == null ? -1 : message.getType().ordinal());
+        frame.putInt(body_length);
+        if (message != null) {
+            message.writeBody(frame);
+        }
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * @throws IOException if the frame is malformed
+     */
+    static Message decodeMessage(ByteBuffer frame) throws IOException {
+        int src = frame.getInt();
+        int dest = frame.getInt();
+        int type = frame.getInt();
+        int body_length = frame.getInt();
+        if (type < -1 || type >= MessageType.values().length || body_length < -1 || body_length > frame.remaining()) {
+            throw new IOException("Malformed Frame: Type " + type + ", Body Length " + body_length);
+        }
+        byte[] body = null;
+        if (body_length >= 0) {
+            body = new byte[body_length];
+            frame.get(body);
+        }
+        return new Message(type < 0 ? null : MessageType.values()[type], src, dest, body);
+    }
+
+    /**
+     * A Reply not yet Received
+     */
+    private static class Pending {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Message reply;
+        volatile IOException failure;
+    }
+
+    /**
+     * One Socket, Outgoing (Requests Sent, Replies Read) or Accepted (Requests Read, Replies Sent)
+     * Read and Written by the Selector Thread only; Frames to Send are Queued from any Thread.
+     */
+    private class Connection {
+
+        final SocketChannel channel;
+
+        final int port; // Destination Port, -1 for an Accepted Connection
+
+        final Map<Long, Pending> pending = new ConcurrentHashMap<Long, Pending>();
+
+        final Queue<ByteBuffer> outgoing = new ConcurrentLinkedQueue<ByteBuffer>();
+
+        volatile IOException failure;
+
+        private SelectionKey key;
+
+        private ByteBuffer incoming = ByteBuffer.allocate(READ_BUFFER);
+
+        Connection(SocketChannel channel, int port) {
+            this.channel = channel;
+            this.port = port;
+        }
+
+        void register(int ops) {
+            try {
+                this.key = this.channel.register(selector, ops, this);
+            } catch (IOException ioe) {
+                close(ioe);
+            }
+        }
+
+        void interest(int ops) {
+            if (this.key != null && this.key.isValid()) {
+                this.key.interestOps(ops);
+            }
+        }
+
+        void enqueue(ByteBuffer frame) {
+            this.outgoing.add(frame);
+            runOnSelector(new Runnable() {
+                @Override
+                public void run() {
+                    /* Still Connecting: Writes Start once Connected */
+                    if (key != null && key.isValid() && (key.interestOps() & SelectionKey.OP_CONNECT) == 0) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                }
+            });
+        }
+
+        void write() throws IOException {
+            ByteBuffer frame;
+            while ((frame = this.outgoing.peek()) != null) {
+                this.channel.write(frame);
+                if (frame.hasRemaining()) {
+                    return; // Socket Buffer Full, Wait for the Next OP_WRITE
+                }
+                this.outgoing.poll();
+            }
+            interest(SelectionKey.OP_READ);
+        }
+
+        void read() throws IOException {
+            if (this.channel.read(this.incoming) < 0) {
+                throw new IOException("Connection Closed by Peer");
+            }
+            this.incoming.flip();
+            while (this.incoming.remaining() >= 4) {
+                int length = this.incoming.getInt(this.incoming.position());
+                /* Never Trust the Length off the Wire: the Connection is Closed instead */
+                if (length < FRAME_HEADER || length > MAX_FRAME_BYTES) {
+                    throw new IOException("Bad Frame Length " + length);
+                }
+                if (this.incoming.remaining() < 4 + length) {
+                    /* Frame Larger than the Buffer: Grow it to Fit */
+                    if (this.incoming.capacity() < 4 + length) {
+                        ByteBuffer larger = ByteBuffer.allocate(4 + length);
+                        larger.put(this.incoming);
+                        this.incoming = larger;
+                        return;
+                    }
+                    break;
+                }
+                this.incoming.getInt();
+                ByteBuffer frame = this.incoming.slice();
+                frame.limit(length);
+                this.incoming.position(this.incoming.position() + length);
+                long request = frame.getLong();
+                byte kind = frame.get();
+                if (kind == KIND_REQUEST) {
+                    dispatch(this, request, decodeMessage(frame));
+                    continue;
+                }
+                Pending waiting = this.pending.remove(request);
+                if (waiting != null) {
+                    waiting.reply = kind == KIND_REPLY ? decodeMessage(frame) : null;
+                    waiting.done.countDown();
+                }
+            }
+            this.incoming.compact();
+        }
+
+        void close(IOException cause) {
+            this.failure = cause;
+            if (this.key != null) {
+                this.key.cancel();
+            }
+            try {
+                this.channel.close();
+            } catch (IOException ignored) {
+                // Already Closed
+            }
+            answerPending(null, cause);
+        }
+
+        /**
+         * Release every Request Waiting on this Connection
+         * @param reply the reply they get
+         * @param failure the failure they get instead, null for none
+         */
+        void answerPending(Message reply, IOException failure) {
+            for (Long request : this.pending.keySet()) {
+                Pending waiting = this.pending.remove(request);
+                if (waiting != null) {
+                    waiting.reply = reply;
+                    waiting.failure = failure;
+                    waiting.done.countDown();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package lib;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact, Immutable 256-bit Hash Key: 4 Longs instead of a 64-Char Hex String.
+ * Equal Hashes give Equal Keys, and hashCode() is just Bits of the Digest,
+ * so HashMap Lookups need no String Hashing or Char-by-Char Comparison.
+ */
+public final class Hash256 {
+
+    private final long w0, w1, w2, w3;
+
+    private Hash256(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+    }
+
+    /**
+     * Key of a 32-Byte Digest (Big-Endian)
+     */
+    public static Hash256 fromBytes(byte[] digest) {
+        if (digest.length != Sha256.DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Hash256 needs " + Sha256.DIGEST_LENGTH + " Bytes, got " + digest.length);
+        }
+        return new Hash256(readLong(digest, 0), readLong(digest, 8), readLong(digest, 16), readLong(digest, 24));
+    }
+
+    /**
+     * Key of a Hash String
+     * A 64-Char Hex Digest is Parsed Directly; any other String (e.g. the Hard-Coded Genesis Hash)
+     * is Keyed by its own SHA-256, so every Hash String still gets a Distinct Key.
+     */
+    public static Hash256 of(String hash) {
+        if (hash.length() == 2 * Sha256.DIGEST_LENGTH) {
+            long[] w = new long[4];
+            boolean hex = true;
+            for (int i = 0; i < hash.length() && hex; i++) {
+                int nibble = Character.digit(hash.charAt(i), 16);
+                if (nibble < 0 || Character.isUpperCase(hash.charAt(i))) {
+                    hex = false;
+                }
+                else {
+                    w[i >> 4] = (w[i >> 4] << 4) | nibble;
+                }
+            }
+            if (hex) {
+                return new Hash256(w[0], w[1], w[2], w[3]);
+            }
+        }
+        return fromBytes(Sha256.digest(hash.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Read 32 Raw Bytes (Big-Endian) from a Buffer
+     */
+    public static Hash256 read(ByteBuffer buf) {
+        return new Hash256(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong());
+    }
+
+    /**
+     * Write the 32 Raw Bytes (Big-Endian) into a Buffer
+     */
+    public void write(ByteBuffer buf) {
+        buf.putLong(this.w0).putLong(this.w1).putLong(this.w2).putLong(this.w3);
+    }
+
+    private static long readLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[off + i] & 0xff);
+        }
+        return v;
+    }
+
+    /**
+     * Big-Endian Digest Bytes
+     */
+    public byte[] toBytes() {
+        byte[] out = new byte[Sha256.DIGEST_LENGTH];
+        long[] w = {this.w0, this.w1, this.w2, this.w3};
+        for (int i = 0; i < Sha256.DIGEST_LENGTH; i++) {
+            out[i] = (byte) (w[i >> 3] >>> (56 - ((i & 7) << 3)));
+        }
+        return out;
+    }
+
+    /**
+     * Lower-Case Hex (the Digest Bytes, not the Original String of a Non-Hex Key)
+     */
+    public String toHex() {
+        char[] out = new char[2 * Sha256.DIGEST_LENGTH];
+        long[] w = {this.w0, this.w1, this.w2, this.w3};
+        for (int i = 0; i < out.length; i++) {
+            out[i] = Character.forDigit((int) (w[i >> 4] >>> (60 - ((i & 15) << 2))) & 0xf, 16);
+        }
+        return new String(out);
+    }
+
+    /**
+     * Number of Leading Zero Bits, the Proof-of-Work Measure
+     */
+    public int leadingZeroBits() {
+        if (this.w0 != 0) {
+            return Long.numberOfLeadingZeros(this.w0);
+        }
+        if (this.w1 != 0) {
+            return 64 + Long.numberOfLeadingZeros(this.w1);
+        }
+        if (this.w2 != 0) {
+            return 128 + Long.numberOfLeadingZeros(this.w2);
+        }
+        return 192 + Long.numberOfLeadingZeros(this.w3);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Hash256)) {
+            return false;
+        }
+        Hash256 h = (Hash256) o;
+        return this.w0 == h.w0 && this.w1 == h.w1 && this.w2 == h.w2 && this.w3 == h.w3;
+    }
+
+    @Override
+    public int hashCode() {
+        /* Proof-of-Work Zeroes the Leading Bits, Take the Trailing Word */
+        return (int) (this.w3 ^ (this.w3 >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
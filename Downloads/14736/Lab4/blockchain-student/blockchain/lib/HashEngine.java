@@ -0,0 +1,34 @@
+package lib;
+
+/**
+ * SHA-256 Backend used for Mining and Block Validation.
+ * A Node Picks One Engine at Startup, see HashEngines.
+ */
+public interface HashEngine {
+
+    /**
+     * Short name of the engine, as accepted by HashEngines.byName
+     */
+    String getName();
+
+    /**
+     * One-shot SHA-256 of a message
+     * @param input the message
+     * @return the 32-byte digest
+     */
+    byte[] sha256(byte[] input);
+
+    /**
+     * One-shot SHA-256 as a lower-case hex string (same as DigestUtils.sha256Hex)
+     * @param input the message
+     * @return the 64-char hex digest
+     */
+    String sha256Hex(byte[] input);
+
+    /**
+     * Hasher for the mining loop over (prefix + decimal nonce)
+     * @param prefix the constant bytes before the nonce digits
+     * @return a hasher owned by the calling worker
+     */
+    NonceHasher newNonceHasher(byte[] prefix);
+}
@@ -0,0 +1,57 @@
+package lib;
+
+/**
+ * Registry of the Available HashEngines
+ */
+public final class HashEngines {
+
+    /*
+     * Engine Picked when the Node is Started without -Dblockchain.hash.engine.
+     * It Mines with DigestNonceHasher, which Rehashes the Whole Block String per Nonce:
+     * the Midstate (Prefix Blocks Compressed Once) is Used only by -Dblockchain.hash.engine=purejava|vector.
+     * jdk Stays the Default as its Intrinsic SHA-256 still Out-Runs the Pure-Java Midstate Hasher (see HashBenchmark).
+     */
+    public static final String DEFAULT = JdkHashEngine.NAME;
+
+    private HashEngines() {}
+
+    /**
+     * All Engines, in the Order the Benchmark Reports them
+     */
+    public static HashEngine[] all() {
+        return new HashEngine[] {
+                new CommonsCodecHashEngine(),
+                new JdkHashEngine(),
+                new PureJavaHashEngine(),
+                new VectorHashEngine()
+        };
+    }
+
+    /**
+     * Look up an Engine by Name, only the Engine Asked for is Created
+     * @param name "commons", "jdk", "purejava" or "vector"
+     * @return the engine, the default engine for an unknown name
+     */
+    public static HashEngine byName(String name) {
+        switch (name.toLowerCase()) {
+            case CommonsCodecHashEngine.NAME:
+                return new CommonsCodecHashEngine();
+            case JdkHashEngine.NAME:
+                return new JdkHashEngine();
+            case PureJavaHashEngine.NAME:
+                return new PureJavaHashEngine();
+            case VectorHashEngine.NAME:
+                return new VectorHashEngine();
+            default:
+                System.err.println("Unknown Hash Engine '" + name + "', Using " + DEFAULT);
+                return byName(DEFAULT);
+        }
+    }
+
+    /**
+     * The Engine Chosen at Startup by -Dblockchain.hash.engine=NAME
+     */
+    public static HashEngine fromSystemProperty() {
+        return byName(System.getProperty("blockchain.hash.engine", DEFAULT));
+    }
+}
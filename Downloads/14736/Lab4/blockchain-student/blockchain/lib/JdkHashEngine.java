@@ -0,0 +1,49 @@
+package lib;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * HashEngine on java.security.MessageDigest, One Cached Instance per Thread.
+ */
+public class JdkHashEngine implements HashEngine {
+
+    public static final String NAME = "jdk";
+
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            return newDigest();
+        }
+    };
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            /* Every Java Platform is Required to Support SHA-256 */
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] sha256(byte[] input) {
+        /* digest() Resets the Cached Instance for the Next Call */
+        return DIGEST.get().digest(input);
+    }
+
+    @Override
+    public String sha256Hex(byte[] input) {
+        return Sha256.toHex(sha256(input));
+    }
+
+    @Override
+    public NonceHasher newNonceHasher(byte[] prefix) {
+        return new DigestNonceHasher(prefix, newDigest());
+    }
+}
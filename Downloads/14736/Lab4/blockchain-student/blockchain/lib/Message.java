@@ -1,6 +1,10 @@
 package lib;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 public class Message implements Serializable {
 
@@ -21,6 +25,11 @@ public class Message implements Serializable {
      * The payload of the message packet.
      */
     private byte[] body;
+    /**
+     * A payload shared with its producer instead of a copy (read-only, sender side only),
+     * it goes on the wire as an ordinary body.
+     */
+    private transient ByteBuffer shared_body;
 
     /**
      * Message - Construct a message to be sent within this network.
@@ -37,6 +46,19 @@ public class Message implements Serializable {
         this.body = body;
     }
 
+    /**
+     * Message - Construct a message whose payload is a read-only view, not copied until it is sent.
+     *
+     * @param type the message type
+     * @param src_addr source
+     * @param dest_addr destination
+     * @param body payload, from its position to its limit; the bytes must not change afterwards
+     */
+    public Message(MessageType type, int src_addr, int dest_addr, ByteBuffer body) {
+        this(type, src_addr, dest_addr, (byte[]) null);
+        this.shared_body = body == null ? null : body.asReadOnlyBuffer();
+    }
+
     public int getSrc() {
         return this.src_addr;
     }
@@ -46,10 +68,66 @@ public class Message implements Serializable {
     }
 
     public byte[] getBody() {
+        /* Only a Receiver on this Side of the Wire Needs a Copy of a Shared Payload */
+        if (this.body == null && this.shared_body != null) {
+            byte[] copy = new byte[this.shared_body.remaining()];
+            this.shared_body.duplicate().get(copy);
+            this.body = copy;
+        }
         return this.body;
     }
 
+    /**
+     * @return the payload length, -1 for none
+     */
+    public int getBodyLength() {
+        if (this.body == null) {
+            return this.shared_body == null ? -1 : this.shared_body.remaining();
+        }
+        return this.body.length;
+    }
+
+    /**
+     * Copy the payload into a buffer, straight from a shared payload
+     * @param dst the buffer, with getBodyLength() bytes remaining at least
+     */
+    public void writeBody(ByteBuffer dst) {
+        if (this.body == null && this.shared_body != null) {
+            dst.put(this.shared_body.duplicate());
+        }
+        else if (this.body != null) {
+            dst.put(this.body);
+        }
+    }
+
     public MessageType getType(){
         return this.type;
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        /* A Shared Payload Follows the Fields, Written in Chunks without a Full Copy */
+        if (this.body == null && this.shared_body != null) {
+            ByteBuffer from = this.shared_body.duplicate();
+            byte[] chunk = new byte[Math.min(from.remaining(), 64 * 1024)];
+            out.writeInt(from.remaining());
+            while (from.hasRemaining()) {
+                int n = Math.min(chunk.length, from.remaining());
+                from.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+        else {
+            out.writeInt(-1);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int length = in.readInt();
+        if (length >= 0) {
+            this.body = new byte[length];
+            in.readFully(this.body);
+        }
+    }
 }
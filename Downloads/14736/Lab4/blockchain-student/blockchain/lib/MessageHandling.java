@@ -28,7 +28,25 @@ public interface MessageHandling {
 
    byte[] mineNewBlock(byte[] data);
 
+   /**
+    * Queue a mining request on the node's background miner and return at once.
+    *
+    * @param data the byte representation for the string data.
+    * @return a ticket for isMiningDone / getMinedBlock, -1 if the queue is full.
+    */
+   int submitMiningRequest(byte[] data);
+
+   boolean isMiningDone(int ticket);
+
+   byte[] getMinedBlock(int ticket);
+
    void broadcastNewBlock();
 
+   /**
+    * Broadcast the whole run of consecutive blocks waiting for broadcast,
+    * one message per peer instead of one broadcastNewBlock per block.
+    */
+   void broadcastNewBlocks();
+
    void downloadChain();
 }
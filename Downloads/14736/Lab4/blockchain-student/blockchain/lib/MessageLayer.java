@@ -5,5 +5,6 @@ import java.rmi.RemoteException;
 
 public interface MessageLayer extends Remote {
     void register(int id, RemoteControllerIntf remoteController) throws RemoteException;
+    void register(int id, RemoteControllerIntf remoteController, int directPort) throws RemoteException;
     Message send(Message message) throws RemoteException;
 }
@@ -6,5 +6,10 @@ public enum MessageType {
     GET_BLOCKCHAIN_DATA,
     ON_BROADCAST_NEW_BLOCK,
     AGREE_BROADCAST_NEW_BLOCK,
-    DISAGREE_BROADCAST_NEW_BLOCK
+    DISAGREE_BROADCAST_NEW_BLOCK,
+    GET_COMMON_ANCESTOR,
+    GET_BLOCK_RANGE,
+    ANNOUNCE_BLOCK_HEADER,
+    GET_BLOCK_BODY,
+    ON_BROADCAST_NEW_BLOCKS
 }
@@ -0,0 +1,80 @@
+package lib;
+
+import java.util.Arrays;
+
+/**
+ * Pure Java NonceHasher on a Precomputed Midstate.
+ * The Full 64-Byte Blocks of the Prefix are Compressed Once into a Midstate,
+ * every Nonce then only Costs the last One or Two Compressions.
+ */
+public final class MidstateNonceHasher extends NonceHasher {
+
+    private final int[] midstate = new int[8];
+
+    private final int[] state = new int[8];
+
+    private final int[] w = new int[64];
+
+    /* Prefix Bytes not Covered by the Midstate, Nonce Digits and Padding go After them */
+    private final byte[] tail = new byte[2 * Sha256.BLOCK_LENGTH];
+
+    private final int tailLength;
+
+    private final long prefixLength;
+
+    private final byte[] digits = new byte[MAX_NONCE_DIGITS];
+
+    /* Digit Count of the Previous Nonce, Padding only needs Rewriting when it Changes */
+    private int lastDigitCount = -1;
+
+    private int blocksEnd;
+
+    /**
+     * Constructor
+     * @param prefix the constant bytes hashed before the nonce digits
+     */
+    public MidstateNonceHasher(byte[] prefix) {
+        Sha256.init(this.midstate);
+        int full = prefix.length / Sha256.BLOCK_LENGTH;
+        for (int i = 0; i < full; i++) {
+            Sha256.compress(this.midstate, prefix, i * Sha256.BLOCK_LENGTH, this.w);
+        }
+        this.tailLength = prefix.length - full * Sha256.BLOCK_LENGTH;
+        System.arraycopy(prefix, full * Sha256.BLOCK_LENGTH, this.tail, 0, this.tailLength);
+        this.prefixLength = prefix.length;
+    }
+
+    @Override
+    public void hash(long nonce) {
+        int p = putDecimal(nonce, this.digits);
+        int digitCount = MAX_NONCE_DIGITS - p;
+
+        System.arraycopy(this.digits, p, this.tail, this.tailLength, digitCount);
+        if (digitCount != this.lastDigitCount) {
+            /* 0x80 Marker + Zero Padding + Bit Length, Overwriting what a Longer/Shorter Nonce left */
+            int end = this.tailLength + digitCount;
+            this.blocksEnd = end + 9 <= Sha256.BLOCK_LENGTH ? Sha256.BLOCK_LENGTH : 2 * Sha256.BLOCK_LENGTH;
+            this.tail[end] = (byte) 0x80;
+            Arrays.fill(this.tail, end + 1, this.blocksEnd - 8, (byte) 0);
+            Sha256.putBitLength(this.tail, this.blocksEnd, this.prefixLength + digitCount);
+            this.lastDigitCount = digitCount;
+        }
+
+        System.arraycopy(this.midstate, 0, this.state, 0, 8);
+        for (int off = 0; off < this.blocksEnd; off += Sha256.BLOCK_LENGTH) {
+            Sha256.compress(this.state, this.tail, off, this.w);
+        }
+    }
+
+    @Override
+    public int leadingZeroBits() {
+        return Sha256.leadingZeroBits(this.state);
+    }
+
+    @Override
+    public String hex() {
+        byte[] out = new byte[Sha256.DIGEST_LENGTH];
+        Sha256.toBytes(this.state, out);
+        return Sha256.toHex(out);
+    }
+}
@@ -0,0 +1,65 @@
+package lib;
+
+/**
+ * SHA-256 of (Constant Prefix + Decimal Nonce) for the Mining Hot Path.
+ * Implementations Keep their Buffers between Calls, so Hashing a Nonce Allocates Nothing.
+ * Not Thread-Safe: every Mining Worker Owns its own Instance.
+ */
+public abstract class NonceHasher {
+
+    /* Longest Decimal Long: "-9223372036854775808" */
+    protected static final int MAX_NONCE_DIGITS = 20;
+
+    /**
+     * Hash the Prefix followed by the Decimal Nonce, Result is Kept in this Hasher
+     * @param nonce the nonce, written exactly as Long.toString would
+     */
+    public abstract void hash(long nonce);
+
+    /**
+     * Leading Zero Bits of the Last Hash, Checked Straight on the Raw Digest
+     */
+    public abstract int leadingZeroBits();
+
+    /**
+     * Hex String of the Last Hash, only Needed Once a Nonce Wins
+     */
+    public abstract String hex();
+
+    /**
+     * Consecutive Nonces Hashed by One search Call, 1 for Scalar Hashers
+     */
+    public int lanes() {
+        return 1;
+    }
+
+    /**
+     * Hash lanes() Consecutive Nonces Starting at firstNonce
+     * After a Hit, hex() is the Hash of the Winning Nonce.
+     * @param firstNonce the first nonce of the batch
+     * @param zeroBits required leading zero bits
+     * @return offset of the first nonce in the batch meeting zeroBits, -1 if none does
+     */
+    public int search(long firstNonce, int zeroBits) {
+        hash(firstNonce);
+        return leadingZeroBits() >= zeroBits ? 0 : -1;
+    }
+
+    /**
+     * Decimal Digits of a Nonce, Right-Aligned in 'digits' (MAX_NONCE_DIGITS Long)
+     * Works on the Negative Value so Long.MIN_VALUE fits.
+     * @return index of the first digit
+     */
+    protected static int putDecimal(long nonce, byte[] digits) {
+        long q = nonce < 0 ? nonce : -nonce;
+        int p = MAX_NONCE_DIGITS;
+        do {
+            digits[--p] = (byte) ('0' - (q % 10));
+            q /= 10;
+        } while (q != 0);
+        if (nonce < 0) {
+            digits[--p] = '-';
+        }
+        return p;
+    }
+}
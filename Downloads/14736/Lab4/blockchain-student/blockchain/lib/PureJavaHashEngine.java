@@ -0,0 +1,30 @@
+package lib;
+
+/**
+ * HashEngine on the Hand-Unrolled Pure Java Compression of Sha256.
+ * Mining Hashes from a Precomputed Midstate of the Constant Prefix.
+ */
+public class PureJavaHashEngine implements HashEngine {
+
+    public static final String NAME = "purejava";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] sha256(byte[] input) {
+        return Sha256.digest(input);
+    }
+
+    @Override
+    public String sha256Hex(byte[] input) {
+        return Sha256.toHex(Sha256.digest(input));
+    }
+
+    @Override
+    public NonceHasher newNonceHasher(byte[] prefix) {
+        return new MidstateNonceHasher(prefix);
+    }
+}
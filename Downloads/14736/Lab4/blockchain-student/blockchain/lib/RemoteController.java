@@ -2,6 +2,7 @@ package lib;
 
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.Map;
 
 public class RemoteController extends UnicastRemoteObject implements RemoteControllerIntf {
     /**
@@ -9,6 +10,10 @@ public class RemoteController extends UnicastRemoteObject implements RemoteContr
      */
     public final MessageHandling message_callback;
     private static final long serialVersionUID = 1L;
+    /**
+     * The direct transport of the node, null when all messages go through the controller.
+     */
+    private volatile DirectTransport directTransport;
 
     /**
      * Constructor.
@@ -19,6 +24,10 @@ public class RemoteController extends UnicastRemoteObject implements RemoteContr
         this.message_callback = mh;
     }
 
+    void setDirectTransport(DirectTransport directTransport) {
+        this.directTransport = directTransport;
+    }
+
     /**
      * Delegates the deliverMessage to the MessageHandling object.
      * @param message the message sent to the node.
@@ -38,13 +47,45 @@ public class RemoteController extends UnicastRemoteObject implements RemoteContr
         return message_callback.mineNewBlock(data);
     }
 
+    @Override
+    public int submitMiningRequest(byte[] data) throws RemoteException {
+        return message_callback.submitMiningRequest(data);
+    }
+
+    @Override
+    public boolean isMiningDone(int ticket) throws RemoteException {
+        return message_callback.isMiningDone(ticket);
+    }
+
+    @Override
+    public byte[] getMinedBlock(int ticket) throws RemoteException {
+        return message_callback.getMinedBlock(ticket);
+    }
+
     @Override
     public void broadcastNewBlock() throws RemoteException {
         message_callback.broadcastNewBlock();
     }
 
+    @Override
+    public void broadcastNewBlocks() throws RemoteException {
+        message_callback.broadcastNewBlocks();
+    }
+
     @Override
     public void downloadChain() throws RemoteException {
         message_callback.downloadChain();
     }
+
+    /**
+     * The controller pushes the connected nodes and their direct ports.
+     * @param directPorts node id to port of its direct transport.
+     */
+    @Override
+    public void updatePeers(Map<Integer, Integer> directPorts) throws RemoteException {
+        DirectTransport direct = this.directTransport;
+        if (direct != null) {
+            direct.updatePeers(directPorts);
+        }
+    }
 }
@@ -2,6 +2,7 @@
 package lib;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.Map;
 
 public interface RemoteControllerIntf extends Remote {
     //you can add the same methods as you define in MessageHandlingIntf.
@@ -9,6 +10,11 @@ public interface RemoteControllerIntf extends Remote {
     Message deliverMessage(Message message) throws RemoteException;
     GetStateReply getState() throws RemoteException;
     byte[] mineNewBlock(byte[] data) throws RemoteException;
+    int submitMiningRequest(byte[] data) throws RemoteException;
+    boolean isMiningDone(int ticket) throws RemoteException;
+    byte[] getMinedBlock(int ticket) throws RemoteException;
     void broadcastNewBlock() throws RemoteException;
+    void broadcastNewBlocks() throws RemoteException;
     void downloadChain() throws RemoteException;
+    void updatePeers(Map<Integer, Integer> directPorts) throws RemoteException;
 }
@@ -0,0 +1,231 @@
+package lib;
+
+/**
+ * Plain Java SHA-256 (FIPS 180-4) working on int[8] States,
+ * so the Miner can Keep a Midstate and Hash without any Allocation.
+ * Backs the PureJavaHashEngine.
+ */
+public final class Sha256 {
+
+    public static final int DIGEST_LENGTH = 32;
+
+    public static final int BLOCK_LENGTH = 64;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /* Initial Hash Value H(0) */
+    static final int[] IV = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
+            0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    /* Round Constants */
+    static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    private Sha256() {}
+
+    /**
+     * Reset a State to the Initial Hash Value
+     */
+    public static void init(int[] state) {
+        System.arraycopy(IV, 0, state, 0, 8);
+    }
+
+    /**
+     * Process One 64-Byte Block into the State
+     * Hand-Unrolled 8 Rounds at a time: the Working Variables Rotate by Renaming instead of
+     * 7 Moves per Round. Fully Unrolling all 64 Rounds goes over HotSpot's 8000-Byte
+     * HugeMethodLimit, the Method is then never JIT-Compiled and Runs ~20x Slower.
+     * @param state the running hash state (8 words), updated in place
+     * @param block input bytes
+     * @param offset where the 64-byte block starts
+     * @param w caller supplied message schedule scratch (64 words)
+     */
+    public static void compress(int[] state, byte[] block, int offset, int[] w) {
+        for (int t = 0; t < 16; t++) {
+            int i = offset + (t << 2);
+            w[t] = (block[i] << 24) | ((block[i + 1] & 0xff) << 16)
+                    | ((block[i + 2] & 0xff) << 8) | (block[i + 3] & 0xff);
+        }
+        for (int t = 16; t < 64; t++) {
+            int w2 = w[t - 2];
+            int w15 = w[t - 15];
+            int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+            int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+            w[t] = s1 + w[t - 7] + s0 + w[t - 16];
+        }
+
+        int a = state[0], b = state[1], c = state[2], d = state[3];
+        int e = state[4], f = state[5], g = state[6], h = state[7];
+        int t1;
+
+        /* Ch(e,f,g) = g ^ (e & (f ^ g)), Maj(a,b,c) = (a & b) | (c & (a | b)) */
+        for (int t = 0; t < 64; t += 8) {
+            t1 = h + (Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25))
+                    + (g ^ (e & (f ^ g))) + K[t] + w[t];
+            d += t1;
+            h = t1 + (Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22))
+                    + ((a & b) | (c & (a | b)));
+            t1 = g + (Integer.rotateRight(d, 6) ^ Integer.rotateRight(d, 11) ^ Integer.rotateRight(d, 25))
+                    + (f ^ (d & (e ^ f))) + K[t + 1] + w[t + 1];
+            c += t1;
+            g = t1 + (Integer.rotateRight(h, 2) ^ Integer.rotateRight(h, 13) ^ Integer.rotateRight(h, 22))
+                    + ((h & a) | (b & (h | a)));
+            t1 = f + (Integer.rotateRight(c, 6) ^ Integer.rotateRight(c, 11) ^ Integer.rotateRight(c, 25))
+                    + (e ^ (c & (d ^ e))) + K[t + 2] + w[t + 2];
+            b += t1;
+            f = t1 + (Integer.rotateRight(g, 2) ^ Integer.rotateRight(g, 13) ^ Integer.rotateRight(g, 22))
+                    + ((g & h) | (a & (g | h)));
+            t1 = e + (Integer.rotateRight(b, 6) ^ Integer.rotateRight(b, 11) ^ Integer.rotateRight(b, 25))
+                    + (d ^ (b & (c ^ d))) + K[t + 3] + w[t + 3];
+            a += t1;
+            e = t1 + (Integer.rotateRight(f, 2) ^ Integer.rotateRight(f, 13) ^ Integer.rotateRight(f, 22))
+                    + ((f & g) | (h & (f | g)));
+            t1 = d + (Integer.rotateRight(a, 6) ^ Integer.rotateRight(a, 11) ^ Integer.rotateRight(a, 25))
+                    + (c ^ (a & (b ^ c))) + K[t + 4] + w[t + 4];
+            h += t1;
+            d = t1 + (Integer.rotateRight(e, 2) ^ Integer.rotateRight(e, 13) ^ Integer.rotateRight(e, 22))
+                    + ((e & f) | (g & (e | f)));
+            t1 = c + (Integer.rotateRight(h, 6) ^ Integer.rotateRight(h, 11) ^ Integer.rotateRight(h, 25))
+                    + (b ^ (h & (a ^ b))) + K[t + 5] + w[t + 5];
+            g += t1;
+            c = t1 + (Integer.rotateRight(d, 2) ^ Integer.rotateRight(d, 13) ^ Integer.rotateRight(d, 22))
+                    + ((d & e) | (f & (d | e)));
+            t1 = b + (Integer.rotateRight(g, 6) ^ Integer.rotateRight(g, 11) ^ Integer.rotateRight(g, 25))
+                    + (a ^ (g & (h ^ a))) + K[t + 6] + w[t + 6];
+            f += t1;
+            b = t1 + (Integer.rotateRight(c, 2) ^ Integer.rotateRight(c, 13) ^ Integer.rotateRight(c, 22))
+                    + ((c & d) | (e & (c | d)));
+            t1 = a + (Integer.rotateRight(f, 6) ^ Integer.rotateRight(f, 11) ^ Integer.rotateRight(f, 25))
+                    + (h ^ (f & (g ^ h))) + K[t + 7] + w[t + 7];
+            e += t1;
+            a = t1 + (Integer.rotateRight(b, 2) ^ Integer.rotateRight(b, 13) ^ Integer.rotateRight(b, 22))
+                    + ((b & c) | (d & (b | c)));
+        }
+
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+
+    /**
+     * One-Shot SHA-256 of a whole Message
+     */
+    public static byte[] digest(byte[] input) {
+        int[] state = new int[8];
+        int[] w = new int[64];
+        init(state);
+
+        int full = input.length / BLOCK_LENGTH;
+        for (int i = 0; i < full; i++) {
+            compress(state, input, i * BLOCK_LENGTH, w);
+        }
+
+        /* Tail + 0x80 + Zero Padding + 64-bit Big-Endian Bit Length */
+        int rest = input.length - full * BLOCK_LENGTH;
+        byte[] tail = new byte[rest + 9 <= BLOCK_LENGTH ? BLOCK_LENGTH : 2 * BLOCK_LENGTH];
+        System.arraycopy(input, full * BLOCK_LENGTH, tail, 0, rest);
+        tail[rest] = (byte) 0x80;
+        putBitLength(tail, tail.length, input.length);
+        for (int off = 0; off < tail.length; off += BLOCK_LENGTH) {
+            compress(state, tail, off, w);
+        }
+
+        byte[] out = new byte[DIGEST_LENGTH];
+        toBytes(state, out);
+        return out;
+    }
+
+    /**
+     * Write the Message Length (in Bits) into the last 8 Bytes before 'end'
+     */
+    static void putBitLength(byte[] buf, int end, long messageBytes) {
+        long bits = messageBytes << 3;
+        for (int i = 1; i <= 8; i++) {
+            buf[end - i] = (byte) bits;
+            bits >>>= 8;
+        }
+    }
+
+    /**
+     * Big-Endian Bytes of a Final State
+     */
+    public static void toBytes(int[] state, byte[] out) {
+        for (int i = 0; i < 8; i++) {
+            int v = state[i];
+            out[i << 2] = (byte) (v >>> 24);
+            out[(i << 2) + 1] = (byte) (v >>> 16);
+            out[(i << 2) + 2] = (byte) (v >>> 8);
+            out[(i << 2) + 3] = (byte) v;
+        }
+    }
+
+    /**
+     * Lower-Case Hex String (Same as DigestUtils.sha256Hex)
+     */
+    public static String toHex(byte[] digest) {
+        char[] out = new char[digest.length << 1];
+        for (int i = 0; i < digest.length; i++) {
+            out[i << 1] = HEX[(digest[i] >>> 4) & 0xf];
+            out[(i << 1) + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Number of Leading Zero Bits of a Digest
+     */
+    public static int leadingZeroBits(byte[] digest) {
+        int bits = 0;
+        for (int i = 0; i < digest.length; i++) {
+            if (digest[i] != 0) {
+                return bits + Integer.numberOfLeadingZeros(digest[i] & 0xff) - 24;
+            }
+            bits += 8;
+        }
+        return bits;
+    }
+
+    /**
+     * Number of Leading Zero Bits of a Hex Digest String (Stops at the First Non-Hex Character)
+     */
+    public static int leadingZeroBits(String hex) {
+        int bits = 0;
+        for (int i = 0; i < hex.length(); i++) {
+            int nibble = Character.digit(hex.charAt(i), 16);
+            if (nibble != 0) {
+                return nibble < 0 ? bits : bits + Integer.numberOfLeadingZeros(nibble) - 28;
+            }
+            bits += 4;
+        }
+        return bits;
+    }
+
+    /**
+     * Number of Leading Zero Bits of a Final State (Big-Endian Digest Order)
+     */
+    public static int leadingZeroBits(int[] state) {
+        int bits = 0;
+        for (int i = 0; i < 8; i++) {
+            if (state[i] != 0) {
+                return bits + Integer.numberOfLeadingZeros(state[i]);
+            }
+            bits += 32;
+        }
+        return bits;
+    }
+}
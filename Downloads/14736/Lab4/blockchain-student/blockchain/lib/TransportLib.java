@@ -18,6 +18,14 @@ public class TransportLib {
      */
     private RemoteControllerIntf remoteController;
 
+    /**
+     * Direct node-to-node sockets, the controller only relays to nodes without one.
+     * Selected by -Dblockchain.transport=nio, the default "rmi" relays everything.
+     */
+    private DirectTransport directTransport;
+
+    public static final String TRANSPORT = System.getProperty("blockchain.transport", "rmi");
+
     /**
      * Transport Lib.
      * @param port port of the server
@@ -26,9 +34,19 @@ public class TransportLib {
      */
     public TransportLib(int port, int id, MessageHandling messageHandling) {
         try {
-            this.remoteController = new RemoteController(messageHandling);
+            RemoteController controller = new RemoteController(messageHandling);
+            this.remoteController = controller;
             messageLayer = (MessageLayer) Naming.lookup("rmi://localhost:" + port + "/MessageServer");
-            messageLayer.register(id, remoteController);
+            if ("nio".equalsIgnoreCase(TRANSPORT)) {
+                /* Listening before Registering, the Controller Pushes the Peer Table right away */
+                directTransport = new DirectTransport(id, messageHandling);
+                controller.setDirectTransport(directTransport);
+                messageLayer.register(id, remoteController, directTransport.getPort());
+                System.out.println("Node" + id + " Direct Transport on Port " + directTransport.getPort());
+            }
+            else {
+                messageLayer.register(id, remoteController);
+            }
         } catch(Exception e) {
             System.out.println(port);
             e.printStackTrace();
@@ -38,11 +56,15 @@ public class TransportLib {
     }
 
     /**
-     * Send message through message server.
+     * Send message directly to a connected peer with a direct transport,
+     * otherwise through message server.
      * @param message
      * @throws RemoteException
      */
     public Message sendMessage(Message message) throws RemoteException {
+        if (directTransport != null && directTransport.reaches(message.getDest())) {
+            return directTransport.send(message);
+        }
         return messageLayer.send(message);
     }
 }
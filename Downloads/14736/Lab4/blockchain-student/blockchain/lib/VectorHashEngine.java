@@ -0,0 +1,103 @@
+package lib;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * HashEngine Mining with the Multi-Lane VectorNonceHasher (JDK Vector API).
+ * When jdk.incubator.vector is not Available (or the Hasher was not Compiled),
+ * Mining Falls Back to the Scalar JDK Hasher. One-Shot Hashing is always Scalar.
+ * The Vector Hasher is Probed on First Use of this Engine only, and the Fallback is Reported on stderr
+ * when the Engine is Created, so Nodes on Another Engine never Load the Vector API.
+ */
+public class VectorHashEngine implements HashEngine {
+
+    public static final String NAME = "vector";
+
+    private final HashEngine scalar = new JdkHashEngine();
+
+    public VectorHashEngine() {
+        if (!isAvailable()) {
+            System.err.println("Vector API not Available (" + Probe.failure + "), Using Scalar Mining");
+        }
+    }
+
+    /**
+     * Holder of the Probe Result, Initialized on First Access
+     */
+    private static class Probe {
+        static String failure; // Why the Vector Hasher cannot be Used
+
+        static final Constructor<? extends NonceHasher> VECTOR_HASHER = probe();
+    }
+
+    /**
+     * Load VectorNonceHasher Reflectively and Check it against the Scalar Path
+     * @return its constructor, null if the Vector API cannot be used
+     */
+    private static Constructor<? extends NonceHasher> probe() {
+        try {
+            Constructor<? extends NonceHasher> ctor = Class.forName("lib.VectorNonceHasher")
+                    .asSubclass(NonceHasher.class).getConstructor(byte[].class);
+            byte[] prefix = ",1,VECTOR_PROBE,".getBytes();
+            NonceHasher vector = ctor.newInstance((Object) prefix);
+            NonceHasher reference = new MidstateNonceHasher(prefix);
+            int lanes = vector.lanes();
+            /* The Batch must Report the same First Lane (and Hash) the Scalar Path Finds */
+            for (long first = 1000; first < 1000 + 64L * lanes; first += lanes) {
+                int best = -1;
+                int bestBits = -1;
+                for (int lane = 0; lane < lanes; lane++) {
+                    reference.hash(first + lane);
+                    if (reference.leadingZeroBits() > bestBits) {
+                        bestBits = reference.leadingZeroBits();
+                        best = lane;
+                    }
+                }
+                reference.hash(first + best);
+                if (vector.search(first, bestBits) != best || !reference.hex().equals(vector.hex())) {
+                    Probe.failure = "Vector SHA-256 Disagrees with the Scalar Path";
+                    return null;
+                }
+            }
+            return ctor;
+        } catch (Throwable t) {
+            /* ClassNotFound, or NoClassDefFoundError when the Incubator Module is not Resolved */
+            Probe.failure = t.toString();
+            return null;
+        }
+    }
+
+    /**
+     * Whether Mining Really Runs on SIMD Lanes
+     */
+    public static boolean isAvailable() {
+        return Probe.VECTOR_HASHER != null;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] sha256(byte[] input) {
+        return this.scalar.sha256(input);
+    }
+
+    @Override
+    public String sha256Hex(byte[] input) {
+        return this.scalar.sha256Hex(input);
+    }
+
+    @Override
+    public NonceHasher newNonceHasher(byte[] prefix) {
+        if (Probe.VECTOR_HASHER != null) {
+            try {
+                return Probe.VECTOR_HASHER.newInstance((Object) prefix);
+            } catch (ReflectiveOperationException roe) {
+                roe.printStackTrace();
+            }
+        }
+        return this.scalar.newNonceHasher(prefix);
+    }
+}
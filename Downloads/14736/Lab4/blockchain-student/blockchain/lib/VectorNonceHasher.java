@@ -0,0 +1,244 @@
+package lib;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Multi-Lane SHA-256 NonceHasher on the JDK Vector API (jdk.incubator.vector).
+ * Every SIMD Lane Hashes One of 4, 8 or 16 Consecutive Nonces (128/256/512-bit Vectors),
+ * all Lanes Start from the Same Midstate of the Constant Prefix.
+ *
+ * Needs "--add-modules jdk.incubator.vector" at compile and run time, so it is
+ * only Loaded Reflectively by VectorHashEngine, which Falls Back to a Scalar Hasher.
+ */
+public final class VectorNonceHasher extends NonceHasher {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private final int lanes = SPECIES.length();
+
+    private final int[] midstate = new int[8];
+
+    /* One Tail Buffer per Lane: Prefix Bytes not Covered by the Midstate + Nonce Digits + Padding */
+    private final byte[][] tails;
+
+    private final int tailLength;
+
+    private final long prefixLength;
+
+    /* Message Words, Lane-Interleaved: Word r of Lane l is at r * lanes + l */
+    private final int[] words;
+
+    /* Message Schedule and Final State, Lane-Interleaved the Same Way */
+    private final int[] w;
+
+    private final int[] out;
+
+    private final byte[] digits = new byte[MAX_NONCE_DIGITS];
+
+    private int lastDigitCount = -1;
+
+    private int blocksEnd;
+
+    /* Single Nonces, Batches Crossing a Digit-Count Boundary and hex() go Here */
+    private final NonceHasher scalar;
+
+    /**
+     * Constructor
+     * @param prefix the constant bytes hashed before the nonce digits
+     */
+    public VectorNonceHasher(byte[] prefix) {
+        Sha256.init(this.midstate);
+        int[] scratch = new int[64];
+        int full = prefix.length / Sha256.BLOCK_LENGTH;
+        for (int i = 0; i < full; i++) {
+            Sha256.compress(this.midstate, prefix, i * Sha256.BLOCK_LENGTH, scratch);
+        }
+        this.tailLength = prefix.length - full * Sha256.BLOCK_LENGTH;
+        this.prefixLength = prefix.length;
+
+        this.tails = new byte[this.lanes][2 * Sha256.BLOCK_LENGTH];
+        for (byte[] tail : this.tails) {
+            System.arraycopy(prefix, full * Sha256.BLOCK_LENGTH, tail, 0, this.tailLength);
+        }
+        this.words = new int[32 * this.lanes];
+        this.w = new int[64 * this.lanes];
+        this.out = new int[8 * this.lanes];
+
+        this.scalar = new MidstateNonceHasher(prefix);
+    }
+
+    @Override
+    public int lanes() {
+        return this.lanes;
+    }
+
+    @Override
+    public void hash(long nonce) {
+        this.scalar.hash(nonce);
+    }
+
+    @Override
+    public int leadingZeroBits() {
+        return this.scalar.leadingZeroBits();
+    }
+
+    @Override
+    public String hex() {
+        return this.scalar.hex();
+    }
+
+    @Override
+    public int search(long firstNonce, int zeroBits) {
+        long lastNonce = firstNonce + this.lanes - 1;
+        int digitCount = MAX_NONCE_DIGITS - putDecimal(firstNonce, this.digits);
+
+        /* Lanes must Share the Message Length, Otherwise do this (Rare) Batch One by One */
+        if ((firstNonce < 0 && lastNonce >= 0)
+                || MAX_NONCE_DIGITS - putDecimal(lastNonce, this.digits) != digitCount) {
+            for (int i = 0; i < this.lanes; i++) {
+                this.scalar.hash(firstNonce + i);
+                if (this.scalar.leadingZeroBits() >= zeroBits) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        if (digitCount != this.lastDigitCount) {
+            layout(digitCount);
+        }
+
+        /* Only the Words Holding Nonce Digits Differ between Lanes and Batches */
+        int firstRow = this.tailLength >> 2;
+        int lastRow = (this.tailLength + digitCount - 1) >> 2;
+        for (int l = 0; l < this.lanes; l++) {
+            int p = putDecimal(firstNonce + l, this.digits);
+            System.arraycopy(this.digits, p, this.tails[l], this.tailLength, digitCount);
+            for (int r = firstRow; r <= lastRow; r++) {
+                this.words[r * this.lanes + l] = word(this.tails[l], r);
+            }
+        }
+
+        compressLanes();
+
+        for (int l = 0; l < this.lanes; l++) {
+            if (laneZeroBits(l) >= zeroBits) {
+                /* Recompute the Winner on the Scalar Hasher, so hex() Reports it */
+                this.scalar.hash(firstNonce + l);
+                return l;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rewrite 0x80 Marker, Zero Padding and Bit Length of every Lane for a new Digit Count
+     */
+    private void layout(int digitCount) {
+        int end = this.tailLength + digitCount;
+        this.blocksEnd = end + 9 <= Sha256.BLOCK_LENGTH ? Sha256.BLOCK_LENGTH : 2 * Sha256.BLOCK_LENGTH;
+        for (int l = 0; l < this.lanes; l++) {
+            byte[] tail = this.tails[l];
+            tail[end] = (byte) 0x80;
+            Arrays.fill(tail, end + 1, this.blocksEnd - 8, (byte) 0);
+            Sha256.putBitLength(tail, this.blocksEnd, this.prefixLength + digitCount);
+            for (int r = 0; r < this.blocksEnd >> 2; r++) {
+                this.words[r * this.lanes + l] = word(tail, r);
+            }
+        }
+        this.lastDigitCount = digitCount;
+    }
+
+    private static int word(byte[] buf, int row) {
+        int i = row << 2;
+        return (buf[i] << 24) | ((buf[i + 1] & 0xff) << 16) | ((buf[i + 2] & 0xff) << 8) | (buf[i + 3] & 0xff);
+    }
+
+    /**
+     * SHA-256 of the Tail Blocks of all Lanes at once, from the Shared Midstate
+     */
+    private void compressLanes() {
+        final int L = this.lanes;
+        IntVector s0 = IntVector.broadcast(SPECIES, this.midstate[0]);
+        IntVector s1 = IntVector.broadcast(SPECIES, this.midstate[1]);
+        IntVector s2 = IntVector.broadcast(SPECIES, this.midstate[2]);
+        IntVector s3 = IntVector.broadcast(SPECIES, this.midstate[3]);
+        IntVector s4 = IntVector.broadcast(SPECIES, this.midstate[4]);
+        IntVector s5 = IntVector.broadcast(SPECIES, this.midstate[5]);
+        IntVector s6 = IntVector.broadcast(SPECIES, this.midstate[6]);
+        IntVector s7 = IntVector.broadcast(SPECIES, this.midstate[7]);
+
+        for (int block = 0; block < this.blocksEnd >> 6; block++) {
+            System.arraycopy(this.words, block * 16 * L, this.w, 0, 16 * L);
+            for (int t = 16; t < 64; t++) {
+                IntVector w2 = IntVector.fromArray(SPECIES, this.w, (t - 2) * L);
+                IntVector w15 = IntVector.fromArray(SPECIES, this.w, (t - 15) * L);
+                IntVector sig1 = w2.lanewise(VectorOperators.ROR, 17)
+                        .lanewise(VectorOperators.XOR, w2.lanewise(VectorOperators.ROR, 19))
+                        .lanewise(VectorOperators.XOR, w2.lanewise(VectorOperators.LSHR, 10));
+                IntVector sig0 = w15.lanewise(VectorOperators.ROR, 7)
+                        .lanewise(VectorOperators.XOR, w15.lanewise(VectorOperators.ROR, 18))
+                        .lanewise(VectorOperators.XOR, w15.lanewise(VectorOperators.LSHR, 3));
+                sig1.add(IntVector.fromArray(SPECIES, this.w, (t - 7) * L))
+                        .add(sig0)
+                        .add(IntVector.fromArray(SPECIES, this.w, (t - 16) * L))
+                        .intoArray(this.w, t * L);
+            }
+
+            IntVector a = s0, b = s1, c = s2, d = s3, e = s4, f = s5, g = s6, h = s7;
+            for (int t = 0; t < 64; t++) {
+                IntVector S1 = e.lanewise(VectorOperators.ROR, 6)
+                        .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 11))
+                        .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 25));
+                IntVector ch = g.lanewise(VectorOperators.XOR, e.and(f.lanewise(VectorOperators.XOR, g)));
+                IntVector t1 = h.add(S1).add(ch).add(Sha256.K[t]).add(IntVector.fromArray(SPECIES, this.w, t * L));
+                IntVector S0 = a.lanewise(VectorOperators.ROR, 2)
+                        .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 13))
+                        .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 22));
+                IntVector maj = a.and(b).or(c.and(a.or(b)));
+                h = g;
+                g = f;
+                f = e;
+                e = d.add(t1);
+                d = c;
+                c = b;
+                b = a;
+                a = t1.add(S0.add(maj));
+            }
+
+            s0 = s0.add(a);
+            s1 = s1.add(b);
+            s2 = s2.add(c);
+            s3 = s3.add(d);
+            s4 = s4.add(e);
+            s5 = s5.add(f);
+            s6 = s6.add(g);
+            s7 = s7.add(h);
+        }
+
+        s0.intoArray(this.out, 0);
+        s1.intoArray(this.out, L);
+        s2.intoArray(this.out, 2 * L);
+        s3.intoArray(this.out, 3 * L);
+        s4.intoArray(this.out, 4 * L);
+        s5.intoArray(this.out, 5 * L);
+        s6.intoArray(this.out, 6 * L);
+        s7.intoArray(this.out, 7 * L);
+    }
+
+    private int laneZeroBits(int lane) {
+        int bits = 0;
+        for (int i = 0; i < 8; i++) {
+            int v = this.out[i * this.lanes + lane];
+            if (v != 0) {
+                return bits + Integer.numberOfLeadingZeros(v);
+            }
+            bits += 32;
+        }
+        return bits;
+    }
+}